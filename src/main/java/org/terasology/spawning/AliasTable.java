@@ -0,0 +1,146 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.spawning;
+
+import java.util.List;
+
+/**
+ * Immutable weighted selection table using Vose's alias method: building is O(n), each pick is O(1) and allocation
+ * free. Items with a weight of zero or less are left out entirely.
+ *
+ * @param <T> the type of item to pick from
+ */
+final class AliasTable<T> {
+
+    private static final AliasTable<?> EMPTY = new AliasTable<>(new Object[0], new double[0], new double[0], new int[0]);
+
+    private final Object[] items;
+    /** Each item's share of the total weight, kept so tables can be combined */
+    private final double[] shares;
+    private final double[] probability;
+    private final int[] alias;
+
+    private AliasTable(Object[] items, double[] shares, double[] probability, int[] alias) {
+        this.items = items;
+        this.shares = shares;
+        this.probability = probability;
+        this.alias = alias;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> AliasTable<T> empty() {
+        return (AliasTable<T>) EMPTY;
+    }
+
+    /**
+     * @param candidates the items to pick from
+     * @param weights relative weight of each item, same order as candidates
+     * @param <T> the type of item to pick from
+     * @return a table picking each item proportionally to its weight
+     */
+    static <T> AliasTable<T> of(List<T> candidates, double[] weights) {
+        int n = 0;
+        double total = 0;
+        for (int i = 0; i < candidates.size(); i++) {
+            if (weights[i] > 0) {
+                n++;
+                total += weights[i];
+            }
+        }
+        if (n == 0) {
+            return empty();
+        }
+
+        Object[] items = new Object[n];
+        double[] shares = new double[n];
+        double[] scaled = new double[n];
+        int next = 0;
+        for (int i = 0; i < candidates.size(); i++) {
+            if (weights[i] > 0) {
+                items[next] = candidates.get(i);
+                shares[next] = weights[i] / total;
+                scaled[next] = shares[next] * n;
+                next++;
+            }
+        }
+
+        // Work lists of indices with below and above average weight, both used as stacks
+        int[] small = new int[n];
+        int[] large = new int[n];
+        int smallCount = 0;
+        int largeCount = 0;
+        for (int i = 0; i < n; i++) {
+            if (scaled[i] < 1.0) {
+                small[smallCount++] = i;
+            } else {
+                large[largeCount++] = i;
+            }
+        }
+
+        double[] probability = new double[n];
+        int[] alias = new int[n];
+        while (smallCount > 0 && largeCount > 0) {
+            int less = small[--smallCount];
+            int more = large[--largeCount];
+            probability[less] = scaled[less];
+            alias[less] = more;
+            scaled[more] = scaled[more] + scaled[less] - 1.0;
+            if (scaled[more] < 1.0) {
+                small[smallCount++] = more;
+            } else {
+                large[largeCount++] = more;
+            }
+        }
+        // Whatever is left over is (up to rounding error) exactly average
+        while (largeCount > 0) {
+            probability[large[--largeCount]] = 1.0;
+        }
+        while (smallCount > 0) {
+            probability[small[--smallCount]] = 1.0;
+        }
+
+        return new AliasTable<>(items, shares, probability, alias);
+    }
+
+    boolean isEmpty() {
+        return items.length == 0;
+    }
+
+    int size() {
+        return items.length;
+    }
+
+    /**
+     * @param index position of the item in this table
+     * @return the item at the given position
+     */
+    @SuppressWarnings("unchecked")
+    T get(int index) {
+        return (T) items[index];
+    }
+
+    /**
+     * @param index position of the item in this table
+     * @return the item's share of the table's total weight, all shares sum to 1
+     */
+    double share(int index) {
+        return shares[index];
+    }
+
+    /**
+     * Picks an item, a single uniform number is enough to choose both the column and the coin flip.
+     *
+     * @param uniform a random number in [0, 1)
+     * @return the picked item, or null if the table is empty
+     */
+    @SuppressWarnings("unchecked")
+    T pick(double uniform) {
+        int n = items.length;
+        if (n == 0) {
+            return null;
+        }
+        double scaled = uniform * n;
+        int column = Math.min((int) scaled, n - 1);
+        return (T) (scaled - column < probability[column] ? items[column] : items[alias[column]]);
+    }
+}
@@ -0,0 +1,203 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.spawning;
+
+import org.joml.Vector3f;
+import org.terasology.engine.core.Time;
+import org.terasology.engine.entitySystem.entity.EntityRef;
+import org.terasology.engine.entitySystem.entity.lifecycleEvents.BeforeDeactivateComponent;
+import org.terasology.engine.entitySystem.entity.lifecycleEvents.OnActivatedComponent;
+import org.terasology.engine.entitySystem.entity.lifecycleEvents.OnChangedComponent;
+import org.terasology.engine.entitySystem.systems.BaseComponentSystem;
+import org.terasology.engine.entitySystem.systems.RegisterMode;
+import org.terasology.engine.entitySystem.systems.RegisterSystem;
+import org.terasology.engine.entitySystem.systems.UpdateSubscriberSystem;
+import org.terasology.engine.logic.location.LocationComponent;
+import org.terasology.engine.registry.In;
+import org.terasology.gestalt.entitysystem.event.ReceiveEvent;
+import org.terasology.spawning.ai.HierarchicalAIComponent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Gets rid of Spawnables (and hierarchical AIs) once every player is far away. Rather than every AI checking on
+ * every update, all of them are swept every so often, and the ones to go are despawned together after the sweep.
+ * <p>
+ * How far away each entity may get is worked out once when it is tracked (and again when its settings change), so
+ * the sweep only looks up each entity's location and asks the {@link ProximityIndex} for a player within that distance.
+ */
+@RegisterSystem(RegisterMode.AUTHORITY)
+public class DespawnSystem extends BaseComponentSystem implements UpdateSubscriberSystem {
+
+    /** How often in ms everything is checked */
+    private static final long SWEEP_INTERVAL_MS = 2000;
+
+    /** The most entities despawned per sweep, the rest go in the next one */
+    private static final int MAX_DESPAWNS_PER_SWEEP = 64;
+
+    @In
+    private Time time;
+
+    @In
+    private ProximityIndex proximityIndex;
+
+    @In
+    private SpawnablePool spawnablePool;
+
+    @In
+    private SpawningMetrics metrics;
+
+    /** Everything that may despawn, swap-removed so the list stays dense */
+    private final List<EntityRef> tracked = new ArrayList<>();
+    private final Map<Long, Integer> slots = new HashMap<>();
+    /** Per tracked entity, the distance in blocks the nearest player may be at before it despawns, 0 for never */
+    private float[] despawnDistances = new float[64];
+
+    private final List<EntityRef> doomed = new ArrayList<>();
+    private final Vector3f position = new Vector3f();
+    private final Vector3f playerPosition = new Vector3f();
+    private long nextSweepAt;
+
+    @Override
+    public void shutdown() {
+        tracked.clear();
+        slots.clear();
+        doomed.clear();
+    }
+
+    @ReceiveEvent(components = {SpawnableComponent.class, LocationComponent.class})
+    public void onSpawnableActivated(OnActivatedComponent event, EntityRef entity) {
+        track(entity);
+    }
+
+    @ReceiveEvent(components = {SpawnableComponent.class, LocationComponent.class})
+    public void onSpawnableDeactivated(BeforeDeactivateComponent event, EntityRef entity) {
+        untrack(entity);
+    }
+
+    @ReceiveEvent(components = {HierarchicalAIComponent.class, LocationComponent.class})
+    public void onAIActivated(OnActivatedComponent event, EntityRef entity) {
+        track(entity);
+    }
+
+    // Only listening to the settings, not to the location changing on every move
+    @ReceiveEvent(components = SpawnableComponent.class)
+    public void onSpawnableChanged(OnChangedComponent event, EntityRef entity) {
+        refresh(entity);
+    }
+
+    @ReceiveEvent(components = HierarchicalAIComponent.class)
+    public void onAIChanged(OnChangedComponent event, EntityRef entity) {
+        refresh(entity);
+    }
+
+    @ReceiveEvent(components = {HierarchicalAIComponent.class, LocationComponent.class})
+    public void onAIDeactivated(BeforeDeactivateComponent event, EntityRef entity) {
+        // Still a Spawnable after losing its AI, or the other way round
+        if (!entity.hasComponent(SpawnableComponent.class) || !entity.hasComponent(LocationComponent.class)) {
+            untrack(entity);
+        } else {
+            // The AI is still attached until after this event, from now on the Spawnable's own distance applies
+            refresh(entity, null);
+        }
+    }
+
+    @Override
+    public void update(float delta) {
+        long now = time.getGameTimeInMs();
+        if (now < nextSweepAt) {
+            return;
+        }
+        nextSweepAt = now + SWEEP_INTERVAL_MS;
+        // Without any players around everything is far, but nothing needs making room for either
+        if (proximityIndex.getPlayerCount() == 0) {
+            return;
+        }
+
+        for (int i = 0; i < tracked.size() && doomed.size() < MAX_DESPAWNS_PER_SWEEP; i++) {
+            float despawnDistance = despawnDistances[i];
+            if (despawnDistance <= 0) {
+                continue;
+            }
+            EntityRef entity = tracked.get(i);
+            LocationComponent location = entity.getComponent(LocationComponent.class);
+            if (location == null) {
+                continue;
+            }
+            location.getWorldPosition(position);
+            if (!proximityIndex.findNearestPlayer(position, despawnDistance, playerPosition).exists()) {
+                doomed.add(entity);
+            }
+        }
+
+        // Despawning changes what is tracked, so only start once the sweep is done
+        for (EntityRef entity : doomed) {
+            spawnablePool.despawn(entity);
+            metrics.increment(SpawningMetrics.Counter.DESPAWNS);
+        }
+        doomed.clear();
+    }
+
+    /**
+     * @param ai the entity's hierarchical AI, or null to go by its SpawnableComponent alone
+     * @return the distance in blocks the nearest player may be at before the entity despawns, 0 or less to never
+     *         despawn it
+     */
+    @SuppressWarnings("deprecation")
+    private static float despawnDistance(EntityRef entity, HierarchicalAIComponent ai) {
+        SpawnableComponent spawnable = entity.getComponent(SpawnableComponent.class);
+        if (spawnable != null && spawnable.persistent) {
+            return 0;
+        }
+        if (ai != null) {
+            if (!ai.dieIfPlayerFar) {
+                return 0;
+            }
+            // The deprecated dieDistance is compared against squared distances
+            return ai.despawnDistance > 0 ? ai.despawnDistance : (float) Math.sqrt(ai.dieDistance);
+        }
+        return spawnable != null ? spawnable.despawnDistance : 0;
+    }
+
+    private void track(EntityRef entity) {
+        if (slots.containsKey(entity.getId())) {
+            return;
+        }
+        int slot = tracked.size();
+        if (slot == despawnDistances.length) {
+            despawnDistances = Arrays.copyOf(despawnDistances, slot * 2);
+        }
+        slots.put(entity.getId(), slot);
+        tracked.add(entity);
+        despawnDistances[slot] = despawnDistance(entity, entity.getComponent(HierarchicalAIComponent.class));
+    }
+
+    private void refresh(EntityRef entity) {
+        refresh(entity, entity.getComponent(HierarchicalAIComponent.class));
+    }
+
+    private void refresh(EntityRef entity, HierarchicalAIComponent ai) {
+        Integer slot = slots.get(entity.getId());
+        if (slot != null) {
+            despawnDistances[slot] = despawnDistance(entity, ai);
+        }
+    }
+
+    private void untrack(EntityRef entity) {
+        Integer slot = slots.remove(entity.getId());
+        if (slot == null) {
+            return;
+        }
+        int lastSlot = tracked.size() - 1;
+        EntityRef last = tracked.remove(lastSlot);
+        if (slot < lastSlot) {
+            tracked.set(slot, last);
+            despawnDistances[slot] = despawnDistances[lastSlot];
+            slots.put(last.getId(), slot);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.spawning;
+
+import java.util.Arrays;
+
+/**
+ * Distribution of non-negative values in power of two buckets: cheap to record into, fixed in size and accurate to
+ * within a factor of two, which is plenty to spot a frame that took ten times as long as usual.
+ */
+final class MetricHistogram {
+
+    private final long[] buckets = new long[Long.SIZE + 1];
+    private long count;
+    private long sum;
+    private long max;
+
+    void record(long value) {
+        long clamped = Math.max(0, value);
+        buckets[Long.SIZE - Long.numberOfLeadingZeros(clamped)]++;
+        count++;
+        sum += clamped;
+        max = Math.max(max, clamped);
+    }
+
+    long getCount() {
+        return count;
+    }
+
+    long getMax() {
+        return max;
+    }
+
+    double getMean() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    /**
+     * @param fraction which percentile, e.g. 0.99
+     * @return an upper bound on the given percentile of the recorded values, 0 if nothing was recorded
+     */
+    long getPercentile(double fraction) {
+        long rank = (long) Math.ceil(fraction * count);
+        long seen = 0;
+        for (int bucket = 0; bucket < buckets.length; bucket++) {
+            seen += buckets[bucket];
+            if (seen >= rank && seen > 0) {
+                // Bucket n holds values with n significant bits, so values below 2^n
+                return bucket == 0 ? 0 : Math.min(max, (1L << bucket) - 1);
+            }
+        }
+        return max;
+    }
+
+    void clear() {
+        Arrays.fill(buckets, 0);
+        count = 0;
+        sum = 0;
+        max = 0;
+    }
+}
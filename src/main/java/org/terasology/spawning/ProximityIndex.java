@@ -0,0 +1,124 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.spawning;
+
+import org.joml.Vector3f;
+import org.joml.Vector3fc;
+import org.terasology.engine.entitySystem.entity.EntityRef;
+import org.terasology.engine.entitySystem.entity.lifecycleEvents.BeforeDeactivateComponent;
+import org.terasology.engine.entitySystem.entity.lifecycleEvents.OnActivatedComponent;
+import org.terasology.engine.entitySystem.entity.lifecycleEvents.OnChangedComponent;
+import org.terasology.engine.entitySystem.systems.BaseComponentSystem;
+import org.terasology.engine.entitySystem.systems.RegisterMode;
+import org.terasology.engine.entitySystem.systems.RegisterSystem;
+import org.terasology.engine.logic.location.LocationComponent;
+import org.terasology.engine.logic.players.PlayerCharacterComponent;
+import org.terasology.engine.registry.Share;
+import org.terasology.gestalt.entitysystem.event.ReceiveEvent;
+import org.terasology.spawning.ai.HierarchicalAIComponent;
+import org.terasology.spawning.ai.SimpleAIComponent;
+
+import java.util.function.Consumer;
+
+/**
+ * Keeps track of where player characters and AIs are, so "nearest player" and "who is around" can be answered by
+ * looking at a few grid cells instead of every entity. Positions are updated as their LocationComponent changes.
+ */
+@RegisterSystem(RegisterMode.AUTHORITY)
+@Share(ProximityIndex.class)
+public class ProximityIndex extends BaseComponentSystem {
+
+    /** Grid cells are 32 blocks wide, the same as a chunk */
+    private static final int CELL_SHIFT = 5;
+
+    private final SpatialHash players = new SpatialHash(CELL_SHIFT);
+    private final SpatialHash ais = new SpatialHash(CELL_SHIFT);
+
+    private final Vector3f position = new Vector3f();
+    private final Vector3f visitedPosition = new Vector3f();
+
+    @Override
+    public void shutdown() {
+        players.clear();
+        ais.clear();
+    }
+
+    /**
+     * Finds the player character closest to the given position.
+     *
+     * @param origin where to search from
+     * @param maxDistance how far to search
+     * @param playerPosition set to the found player's position, left alone if none is found
+     * @return the closest player character, or {@link EntityRef#NULL} if there is none within the distance
+     */
+    public EntityRef findNearestPlayer(Vector3fc origin, float maxDistance, Vector3f playerPosition) {
+        return players.findNearest(origin, maxDistance, playerPosition);
+    }
+
+    /**
+     * Calls the given consumer with the position of every player character. The position is reused between calls.
+     */
+    public void forEachPlayerPosition(Consumer<Vector3fc> consumer) {
+        players.forEach((player, x, y, z) -> consumer.accept(visitedPosition.set(x, y, z)));
+    }
+
+    /**
+     * Calls the given consumer for every AI within the given distance.
+     */
+    public void forEachAIWithin(Vector3fc origin, float radius, Consumer<EntityRef> consumer) {
+        ais.forEachWithin(origin, radius, consumer);
+    }
+
+    public int getPlayerCount() {
+        return players.size();
+    }
+
+    public int getAICount() {
+        return ais.size();
+    }
+
+    @ReceiveEvent(components = {PlayerCharacterComponent.class, LocationComponent.class})
+    public void onPlayerActivated(OnActivatedComponent event, EntityRef player, LocationComponent location) {
+        players.put(player, location.getWorldPosition(position));
+    }
+
+    @ReceiveEvent(components = {PlayerCharacterComponent.class, LocationComponent.class})
+    public void onPlayerMoved(OnChangedComponent event, EntityRef player, LocationComponent location) {
+        players.put(player, location.getWorldPosition(position));
+    }
+
+    @ReceiveEvent(components = {PlayerCharacterComponent.class, LocationComponent.class})
+    public void onPlayerDeactivated(BeforeDeactivateComponent event, EntityRef player) {
+        players.remove(player);
+    }
+
+    @ReceiveEvent(components = {SimpleAIComponent.class, LocationComponent.class})
+    public void onSimpleAIActivated(OnActivatedComponent event, EntityRef ai, LocationComponent location) {
+        ais.put(ai, location.getWorldPosition(position));
+    }
+
+    @ReceiveEvent(components = {SimpleAIComponent.class, LocationComponent.class})
+    public void onSimpleAIMoved(OnChangedComponent event, EntityRef ai, LocationComponent location) {
+        ais.put(ai, location.getWorldPosition(position));
+    }
+
+    @ReceiveEvent(components = {SimpleAIComponent.class, LocationComponent.class})
+    public void onSimpleAIDeactivated(BeforeDeactivateComponent event, EntityRef ai) {
+        ais.remove(ai);
+    }
+
+    @ReceiveEvent(components = {HierarchicalAIComponent.class, LocationComponent.class})
+    public void onHierarchicalAIActivated(OnActivatedComponent event, EntityRef ai, LocationComponent location) {
+        ais.put(ai, location.getWorldPosition(position));
+    }
+
+    @ReceiveEvent(components = {HierarchicalAIComponent.class, LocationComponent.class})
+    public void onHierarchicalAIMoved(OnChangedComponent event, EntityRef ai, LocationComponent location) {
+        ais.put(ai, location.getWorldPosition(position));
+    }
+
+    @ReceiveEvent(components = {HierarchicalAIComponent.class, LocationComponent.class})
+    public void onHierarchicalAIDeactivated(BeforeDeactivateComponent event, EntityRef ai) {
+        ais.remove(ai);
+    }
+}
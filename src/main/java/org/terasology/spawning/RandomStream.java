@@ -0,0 +1,101 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.spawning;
+
+/**
+ * Counter-based random number stream: the n-th number of a stream is a pure function of its seed, stream id and
+ * position, so streams for different entities never share state, can be used from any thread without locking and
+ * give the same numbers no matter in which order (or on how many threads) they are drawn.
+ */
+public final class RandomStream {
+
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+    private static final long POSITION_GAMMA = 0xC2B2AE3D27D4EB4FL;
+
+    private long key;
+    private long counter;
+
+    public RandomStream() {
+    }
+
+    public RandomStream(long seed, long streamId, long position) {
+        reset(seed, streamId, position);
+    }
+
+    /**
+     * Points this stream at the start of another sequence.
+     *
+     * @param seed seed shared by related streams, e.g. derived from the world seed
+     * @param streamId what the stream is for, e.g. an entity id
+     * @param position where in that stream's life to start, e.g. the game time
+     * @return this stream
+     */
+    public RandomStream reset(long seed, long streamId, long position) {
+        this.key = mix(mix(seed + streamId * GOLDEN_GAMMA) + position * POSITION_GAMMA);
+        this.counter = 0;
+        return this;
+    }
+
+    public long nextLong() {
+        counter++;
+        return mix(key + counter * GOLDEN_GAMMA);
+    }
+
+    /**
+     * @return a number in [0, 1)
+     */
+    public double nextDouble() {
+        return (nextLong() >>> 11) * 0x1.0p-53;
+    }
+
+    /**
+     * @return a number in [0, 1)
+     */
+    public float nextFloat() {
+        return (nextLong() >>> 40) * 0x1.0p-24f;
+    }
+
+    /**
+     * @return a number in [min, max)
+     */
+    public float nextFloat(float min, float max) {
+        return min + nextFloat() * (max - min);
+    }
+
+    /**
+     * @param bound exclusive upper bound, must be positive
+     * @return a number in [0, bound)
+     */
+    public int nextInt(int bound) {
+        return (int) ((bound * (nextLong() >>> 33)) >>> 31);
+    }
+
+    /**
+     * Derives a seed for a family of streams from the world seed, so the same world gives the same numbers.
+     *
+     * @param worldSeed the world's seed, null or empty for a fixed default
+     * @param purpose what the streams are for, so e.g. Spawners and AIs don't draw the same numbers
+     * @return the seed to pass to {@link #reset(long, long, long)}
+     */
+    public static long seedOf(String worldSeed, String purpose) {
+        long seed = 0;
+        if (worldSeed != null) {
+            for (int i = 0; i < worldSeed.length(); i++) {
+                seed = mix(seed + worldSeed.charAt(i) * GOLDEN_GAMMA);
+            }
+        }
+        for (int i = 0; i < purpose.length(); i++) {
+            seed = mix(seed + purpose.charAt(i) * POSITION_GAMMA);
+        }
+        return seed;
+    }
+
+    /**
+     * SplitMix64 finalizer, scrambles all bits of the input into all bits of the output.
+     */
+    public static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,249 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.spawning;
+
+import org.joml.Vector3f;
+import org.joml.Vector3fc;
+import org.terasology.engine.entitySystem.entity.EntityRef;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Entities bucketed by the horizontal grid cell their position falls in, so queries only look at nearby cells.
+ * Positions are kept in the hash itself, answering a query never touches components. Entities are keyed by id so
+ * they can still be removed while being destroyed.
+ */
+final class SpatialHash {
+
+    /**
+     * Gets each entity along with its position.
+     */
+    interface PositionVisitor {
+        void visit(EntityRef entity, float x, float y, float z);
+    }
+
+    /**
+     * Gets each entity along with its squared distance to the position searched from.
+     */
+    interface NeighbourVisitor {
+        void visit(EntityRef entity, float distanceSquared);
+    }
+
+    private final int cellShift;
+    private final Map<Long, List<Entry>> cells = new HashMap<>();
+    private final Map<Long, Entry> entries = new HashMap<>();
+
+    /**
+     * @param cellShift cells are 2^cellShift blocks wide along x and z
+     */
+    SpatialHash(int cellShift) {
+        this.cellShift = cellShift;
+    }
+
+    /**
+     * Adds an entity or moves it to its new position.
+     */
+    void put(EntityRef entity, Vector3fc position) {
+        put(entity, position.x(), position.y(), position.z());
+    }
+
+    void put(EntityRef entity, float x, float y, float z) {
+        long cell = cellKey(cellOf(x), cellOf(z));
+        Entry entry = entries.get(entity.getId());
+        if (entry == null) {
+            entry = new Entry(entity);
+            entries.put(entry.id, entry);
+            addToCell(entry, cell);
+        } else if (entry.cell != cell) {
+            removeFromCell(entry);
+            addToCell(entry, cell);
+        }
+        entry.x = x;
+        entry.y = y;
+        entry.z = z;
+    }
+
+    void remove(EntityRef entity) {
+        Entry entry = entries.remove(entity.getId());
+        if (entry != null) {
+            removeFromCell(entry);
+        }
+    }
+
+    boolean contains(EntityRef entity) {
+        return entries.containsKey(entity.getId());
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    void clear() {
+        cells.clear();
+        entries.clear();
+    }
+
+    /**
+     * Finds the closest entity within the given distance.
+     *
+     * @param position where to search from
+     * @param maxDistance how far to search
+     * @param foundPosition set to the position of the found entity, left alone if none is found
+     * @return the closest entity, or {@link EntityRef#NULL} if there is none within the distance
+     */
+    EntityRef findNearest(Vector3fc position, float maxDistance, Vector3f foundPosition) {
+        float bestDistanceSquared = maxDistance * maxDistance;
+        Entry best = null;
+
+        int minCellX = cellOf(position.x() - maxDistance);
+        int maxCellX = cellOf(position.x() + maxDistance);
+        int minCellZ = cellOf(position.z() - maxDistance);
+        int maxCellZ = cellOf(position.z() + maxDistance);
+
+        // For big searches over few entities it's cheaper to just check them all
+        if ((long) (maxCellX - minCellX + 1) * (maxCellZ - minCellZ + 1) > entries.size()) {
+            for (Entry entry : entries.values()) {
+                float distanceSquared = entry.distanceSquared(position);
+                if (distanceSquared <= bestDistanceSquared) {
+                    bestDistanceSquared = distanceSquared;
+                    best = entry;
+                }
+            }
+        } else {
+            for (int cellX = minCellX; cellX <= maxCellX; cellX++) {
+                for (int cellZ = minCellZ; cellZ <= maxCellZ; cellZ++) {
+                    List<Entry> cell = cells.get(cellKey(cellX, cellZ));
+                    if (cell == null) {
+                        continue;
+                    }
+                    for (int i = 0; i < cell.size(); i++) {
+                        Entry entry = cell.get(i);
+                        float distanceSquared = entry.distanceSquared(position);
+                        if (distanceSquared <= bestDistanceSquared) {
+                            bestDistanceSquared = distanceSquared;
+                            best = entry;
+                        }
+                    }
+                }
+            }
+        }
+
+        if (best == null) {
+            return EntityRef.NULL;
+        }
+        foundPosition.set(best.x, best.y, best.z);
+        return best.entity;
+    }
+
+    /**
+     * Calls the given consumer for every entity within the given distance, in no particular order.
+     * The consumer must not add or remove entities from this hash.
+     */
+    void forEachWithin(Vector3fc position, float radius, Consumer<EntityRef> consumer) {
+        float radiusSquared = radius * radius;
+        int maxCellX = cellOf(position.x() + radius);
+        int maxCellZ = cellOf(position.z() + radius);
+        for (int cellX = cellOf(position.x() - radius); cellX <= maxCellX; cellX++) {
+            for (int cellZ = cellOf(position.z() - radius); cellZ <= maxCellZ; cellZ++) {
+                List<Entry> cell = cells.get(cellKey(cellX, cellZ));
+                if (cell == null) {
+                    continue;
+                }
+                for (int i = 0; i < cell.size(); i++) {
+                    Entry entry = cell.get(i);
+                    if (entry.distanceSquared(position) <= radiusSquared) {
+                        consumer.accept(entry.entity);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Like {@link #forEachWithin(Vector3fc, float, Consumer)}, also passing how far each entity is.
+     */
+    void forEachNeighbour(Vector3fc position, float radius, NeighbourVisitor visitor) {
+        float radiusSquared = radius * radius;
+        int maxCellX = cellOf(position.x() + radius);
+        int maxCellZ = cellOf(position.z() + radius);
+        for (int cellX = cellOf(position.x() - radius); cellX <= maxCellX; cellX++) {
+            for (int cellZ = cellOf(position.z() - radius); cellZ <= maxCellZ; cellZ++) {
+                List<Entry> cell = cells.get(cellKey(cellX, cellZ));
+                if (cell == null) {
+                    continue;
+                }
+                for (int i = 0; i < cell.size(); i++) {
+                    Entry entry = cell.get(i);
+                    float distanceSquared = entry.distanceSquared(position);
+                    if (distanceSquared <= radiusSquared) {
+                        visitor.visit(entry.entity, distanceSquared);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Calls the given visitor for every entity, in no particular order.
+     * The visitor must not add or remove entities from this hash.
+     */
+    void forEach(PositionVisitor visitor) {
+        for (Entry entry : entries.values()) {
+            visitor.visit(entry.entity, entry.x, entry.y, entry.z);
+        }
+    }
+
+    private int cellOf(float coordinate) {
+        return (int) Math.floor(coordinate) >> cellShift;
+    }
+
+    private static long cellKey(int cellX, int cellZ) {
+        return ((long) cellX << 32) | (cellZ & 0xFFFFFFFFL);
+    }
+
+    private void addToCell(Entry entry, long cell) {
+        List<Entry> list = cells.computeIfAbsent(cell, key -> new ArrayList<>());
+        entry.cell = cell;
+        entry.indexInCell = list.size();
+        list.add(entry);
+    }
+
+    private void removeFromCell(Entry entry) {
+        List<Entry> list = cells.get(entry.cell);
+        // Swap the last entry into the gap so removal doesn't shift the list
+        Entry last = list.remove(list.size() - 1);
+        if (last != entry) {
+            list.set(entry.indexInCell, last);
+            last.indexInCell = entry.indexInCell;
+        }
+        if (list.isEmpty()) {
+            cells.remove(entry.cell);
+        }
+    }
+
+    private static final class Entry {
+        private final EntityRef entity;
+        private final long id;
+        private long cell;
+        private int indexInCell;
+        private float x;
+        private float y;
+        private float z;
+
+        private Entry(EntityRef entity) {
+            this.entity = entity;
+            this.id = entity.getId();
+        }
+
+        private float distanceSquared(Vector3fc position) {
+            float dx = x - position.x();
+            float dy = y - position.y();
+            float dz = z - position.z();
+            return dx * dx + dy * dy + dz * dz;
+        }
+    }
+}
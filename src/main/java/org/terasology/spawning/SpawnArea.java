@@ -0,0 +1,137 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.spawning;
+
+import java.util.Arrays;
+
+/**
+ * What is known about the block columns around one ranged Spawner: for each column within range either the height of
+ * its open spawn spot, that it has none, or that it hasn't been scanned yet.
+ */
+final class SpawnArea {
+
+    /** The column hasn't been scanned (or has changed since) */
+    static final int UNKNOWN = Integer.MIN_VALUE;
+
+    /** The column was scanned and has no open spot within reach of the Spawner's height */
+    static final int BLOCKED = Integer.MIN_VALUE + 1;
+
+    private final int originX;
+    private final int originY;
+    private final int originZ;
+    private final int range;
+    private final int minDistanceSquared;
+    private final int width;
+    private final int[] openY;
+
+    /**
+     * @param range how far from the origin spawns may be, in blocks
+     * @param minDistanceSquared the squared distance spawns must at least be from the origin, see
+     *     {@link SpawnerComponent#minDistance}
+     */
+    SpawnArea(int originX, int originY, int originZ, int range, int minDistanceSquared) {
+        this.originX = originX;
+        this.originY = originY;
+        this.originZ = originZ;
+        this.range = range;
+        this.minDistanceSquared = clampMinDistance(minDistanceSquared, range);
+        this.width = 2 * range + 1;
+        this.openY = new int[width * width];
+        Arrays.fill(openY, UNKNOWN);
+    }
+
+    /**
+     * @return true if this area was built for a Spawner at the given block with the given settings
+     */
+    boolean matches(int x, int y, int z, int spawnerRange, int spawnerMinDistanceSquared) {
+        return x == originX && y == originY && z == originZ && spawnerRange == range
+                && clampMinDistance(spawnerMinDistanceSquared, spawnerRange) == minDistanceSquared;
+    }
+
+    /**
+     * Picks a column uniformly from the ring between the Spawner's minimum distance and its range.
+     *
+     * @param radiusUniform a random number in [0, 1) choosing the distance
+     * @param angleUniform a random number in [0, 1) choosing the direction
+     * @return index of the picked column in this area
+     */
+    int pickColumn(double radiusUniform, double angleUniform) {
+        double radius = pickRadius(range, minDistanceSquared, radiusUniform);
+        double angle = angleUniform * 2 * Math.PI;
+        int dx = clamp((int) Math.round(radius * Math.cos(angle)));
+        int dz = clamp((int) Math.round(radius * Math.sin(angle)));
+        return (dz + range) * width + dx + range;
+    }
+
+    /**
+     * Picks a distance such that spots are spread evenly over the area of the ring between both distances.
+     *
+     * @param range the outer distance
+     * @param minDistanceSquared the inner distance squared
+     * @param uniform a random number in [0, 1)
+     * @return a distance between the inner distance (or range if smaller) and range
+     */
+    static double pickRadius(int range, int minDistanceSquared, double uniform) {
+        double outer = (double) range * range;
+        double inner = Math.min(minDistanceSquared, outer);
+        return Math.sqrt(inner + uniform * (outer - inner));
+    }
+
+    int getX(int column) {
+        return originX + column % width - range;
+    }
+
+    int getZ(int column) {
+        return originZ + column / width - range;
+    }
+
+    int getOriginY() {
+        return originY;
+    }
+
+    /**
+     * @return the height of the column's open spot, or {@link #UNKNOWN} or {@link #BLOCKED}
+     */
+    int getOpenY(int column) {
+        return openY[column];
+    }
+
+    void setOpenY(int column, int y) {
+        openY[column] = y;
+    }
+
+    int getMinX() {
+        return originX - range;
+    }
+
+    int getMaxX() {
+        return originX + range;
+    }
+
+    int getMinZ() {
+        return originZ - range;
+    }
+
+    int getMaxZ() {
+        return originZ + range;
+    }
+
+    /**
+     * Forgets what is known about the column a changed block is in, if it is in this area.
+     */
+    void invalidate(int x, int z) {
+        int dx = x - originX;
+        int dz = z - originZ;
+        if (Math.abs(dx) <= range && Math.abs(dz) <= range) {
+            openY[(dz + range) * width + dx + range] = UNKNOWN;
+        }
+    }
+
+    private static int clampMinDistance(int minDistanceSquared, int range) {
+        return (int) Math.min(minDistanceSquared, (long) range * range);
+    }
+
+    private int clamp(int offset) {
+        return Math.max(-range, Math.min(range, offset));
+    }
+}
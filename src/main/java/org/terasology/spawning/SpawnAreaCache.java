@@ -0,0 +1,103 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.spawning;
+
+import org.joml.Vector3fc;
+import org.terasology.engine.world.chunks.Chunks;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps a {@link SpawnArea} per ranged Spawner so repeated spawns around the same origin are lookups rather than
+ * block scans. Areas are also indexed by the chunk columns they overlap so a changed block only has to look at the
+ * few areas it could affect.
+ */
+class SpawnAreaCache {
+
+    /** Spawners reaching further than this aren't cached, the area would get too big to be worth it */
+    static final int MAX_CACHED_RANGE = 64;
+
+    private final Map<Long, SpawnArea> areasBySpawner = new HashMap<>();
+    private final Map<Long, List<SpawnArea>> areasByChunk = new HashMap<>();
+
+    /**
+     * Gets the area around a Spawner, starting a fresh one if the Spawner is new, moved or had its range changed.
+     *
+     * @param spawner id of the spawner entity
+     * @param origin world position of the Spawner
+     * @param spawnerComp the spawner's SpawnerComponent
+     * @return the Spawner's area, or null if its range is too large to cache
+     */
+    SpawnArea getArea(long spawner, Vector3fc origin, SpawnerComponent spawnerComp) {
+        if (spawnerComp.range > MAX_CACHED_RANGE || spawnerComp.range < 0) {
+            remove(spawner);
+            return null;
+        }
+        int x = Math.round(origin.x());
+        int y = Math.round(origin.y());
+        int z = Math.round(origin.z());
+
+        SpawnArea area = areasBySpawner.get(spawner);
+        if (area != null && area.matches(x, y, z, spawnerComp.range, spawnerComp.minDistance)) {
+            return area;
+        }
+        remove(spawner);
+
+        area = new SpawnArea(x, y, z, spawnerComp.range, spawnerComp.minDistance);
+        areasBySpawner.put(spawner, area);
+        for (int chunkX = area.getMinX() >> Chunks.POWER_X; chunkX <= area.getMaxX() >> Chunks.POWER_X; chunkX++) {
+            for (int chunkZ = area.getMinZ() >> Chunks.POWER_Z; chunkZ <= area.getMaxZ() >> Chunks.POWER_Z; chunkZ++) {
+                areasByChunk.computeIfAbsent(chunkKey(chunkX, chunkZ), key -> new ArrayList<>()).add(area);
+            }
+        }
+        return area;
+    }
+
+    /**
+     * Drops the area of a Spawner that went away.
+     *
+     * @param spawner id of the spawner entity
+     */
+    void remove(long spawner) {
+        SpawnArea area = areasBySpawner.remove(spawner);
+        if (area == null) {
+            return;
+        }
+        for (int chunkX = area.getMinX() >> Chunks.POWER_X; chunkX <= area.getMaxX() >> Chunks.POWER_X; chunkX++) {
+            for (int chunkZ = area.getMinZ() >> Chunks.POWER_Z; chunkZ <= area.getMaxZ() >> Chunks.POWER_Z; chunkZ++) {
+                long key = chunkKey(chunkX, chunkZ);
+                List<SpawnArea> areas = areasByChunk.get(key);
+                if (areas != null) {
+                    areas.remove(area);
+                    if (areas.isEmpty()) {
+                        areasByChunk.remove(key);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Forgets what is known about the column of a changed block in every area it is part of.
+     */
+    void onBlockChanged(int x, int z) {
+        List<SpawnArea> areas = areasByChunk.get(chunkKey(x >> Chunks.POWER_X, z >> Chunks.POWER_Z));
+        if (areas != null) {
+            for (SpawnArea area : areas) {
+                area.invalidate(x, z);
+            }
+        }
+    }
+
+    void clear() {
+        areasBySpawner.clear();
+        areasByChunk.clear();
+    }
+
+    private static long chunkKey(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+}
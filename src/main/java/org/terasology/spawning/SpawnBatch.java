@@ -0,0 +1,115 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.spawning;
+
+import org.joml.Vector3f;
+import org.terasology.engine.entitySystem.entity.EntityRef;
+
+import java.util.Arrays;
+
+/**
+ * Reusable buffer of spawns planned during one pass, so their positions can be resolved together before anything
+ * is created. Position vectors are pooled and handed out again after {@link #clear()}.
+ */
+class SpawnBatch {
+
+    private EntityRef[] spawners = new EntityRef[16];
+    private SpawnerComponent[] spawnerComps = new SpawnerComponent[16];
+    private Vector3f[] positions = new Vector3f[16];
+    private boolean[] needsScan = new boolean[16];
+    private boolean[] resolved = new boolean[16];
+    private SpawnArea[] areas = new SpawnArea[16];
+    private int[] columns = new int[16];
+    private int size;
+
+    /**
+     * Plans a spawn, the returned position should be filled in by the caller.
+     *
+     * @param spawner the spawner entity that will spawn
+     * @param spawnerComp the spawner's SpawnerComponent
+     * @param scan whether the position still needs an open spot searched for, otherwise it is used as is
+     * @return the (pooled) position vector for this spawn
+     */
+    Vector3f add(EntityRef spawner, SpawnerComponent spawnerComp, boolean scan) {
+        return add(spawner, spawnerComp, null, -1, scan);
+    }
+
+    /**
+     * Plans a spawn in a column of a Spawner's cached area, the returned position should be filled in by the caller.
+     *
+     * @param spawner the spawner entity that will spawn
+     * @param spawnerComp the spawner's SpawnerComponent
+     * @param area the Spawner's cached area, or null if not cached
+     * @param column the picked column within the area
+     * @param scan whether the column still needs scanning, the result is then recorded in the area
+     * @return the (pooled) position vector for this spawn
+     */
+    Vector3f add(EntityRef spawner, SpawnerComponent spawnerComp, SpawnArea area, int column, boolean scan) {
+        if (size == spawners.length) {
+            int capacity = size * 2;
+            spawners = Arrays.copyOf(spawners, capacity);
+            spawnerComps = Arrays.copyOf(spawnerComps, capacity);
+            positions = Arrays.copyOf(positions, capacity);
+            needsScan = Arrays.copyOf(needsScan, capacity);
+            resolved = Arrays.copyOf(resolved, capacity);
+            areas = Arrays.copyOf(areas, capacity);
+            columns = Arrays.copyOf(columns, capacity);
+        }
+        if (positions[size] == null) {
+            positions[size] = new Vector3f();
+        }
+        spawners[size] = spawner;
+        spawnerComps[size] = spawnerComp;
+        needsScan[size] = scan;
+        resolved[size] = !scan;
+        areas[size] = area;
+        columns[size] = column;
+        return positions[size++];
+    }
+
+    int size() {
+        return size;
+    }
+
+    EntityRef getSpawner(int index) {
+        return spawners[index];
+    }
+
+    SpawnerComponent getSpawnerComp(int index) {
+        return spawnerComps[index];
+    }
+
+    Vector3f getPosition(int index) {
+        return positions[index];
+    }
+
+    boolean needsScan(int index) {
+        return needsScan[index];
+    }
+
+    boolean isResolved(int index) {
+        return resolved[index];
+    }
+
+    SpawnArea getArea(int index) {
+        return areas[index];
+    }
+
+    int getColumn(int index) {
+        return columns[index];
+    }
+
+    void setResolved(int index, boolean isResolved) {
+        resolved[index] = isResolved;
+    }
+
+    /**
+     * Forgets all planned spawns but keeps the pooled vectors around for the next pass.
+     */
+    void clear() {
+        Arrays.fill(spawners, 0, size, null);
+        Arrays.fill(spawnerComps, 0, size, null);
+        Arrays.fill(areas, 0, size, null);
+        size = 0;
+    }
+}
@@ -0,0 +1,116 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.spawning;
+
+import org.joml.Vector3f;
+import org.terasology.engine.world.WorldProvider;
+import org.terasology.engine.world.chunks.Chunks;
+
+/**
+ * Finds open spots to spawn at by scanning a single block column up and down from a starting height.
+ * The column is checked against loaded chunks once up front, after that every probe is a plain block lookup by
+ * integer coordinates with no allocation.
+ */
+class SpawnColumnScanner {
+
+    /** How far up or down (exclusive) to look for an open spot */
+    static final int MAX_OFFSET = 30;
+
+    /** Returned by {@link #findOpenOffset} when no open spot was found */
+    static final int NOT_FOUND = Integer.MIN_VALUE;
+
+    /** Returned by {@link #findOpenOffset} when no open spot was found but part of the column isn't loaded yet */
+    static final int NOT_LOADED = Integer.MIN_VALUE + 1;
+
+    private final WorldProvider worldProvider;
+
+    SpawnColumnScanner(WorldProvider worldProvider) {
+        this.worldProvider = worldProvider;
+    }
+
+    /**
+     * Looks for the nearest penetrable block above or below the given one, preferring above on a tie.
+     * Parts of the column in chunks that aren't loaded are never probed.
+     *
+     * @param x block x of the column
+     * @param y block y to start from
+     * @param z block z of the column
+     * @return the offset from y to the nearest open block, {@link #NOT_FOUND} or {@link #NOT_LOADED}
+     */
+    int findOpenOffset(int x, int y, int z) {
+        if (!worldProvider.isBlockRelevant(x, y, z)) {
+            return NOT_LOADED;
+        }
+
+        // The scanned range spans at most two chunks vertically, cut off whichever end isn't loaded
+        int chunkBottom = (y >> Chunks.POWER_Y) << Chunks.POWER_Y;
+        int top = y + MAX_OFFSET - 1;
+        boolean cutOff = false;
+        if (!worldProvider.isBlockRelevant(x, top, z)) {
+            top = chunkBottom + Chunks.SIZE_Y - 1;
+            cutOff = true;
+        }
+        int bottom = y - MAX_OFFSET + 1;
+        if (!worldProvider.isBlockRelevant(x, bottom, z)) {
+            bottom = chunkBottom;
+            cutOff = true;
+        }
+
+        for (int offset = 1; offset < MAX_OFFSET; offset++) {
+            boolean aboveInRange = y + offset <= top;
+            boolean belowInRange = y - offset >= bottom;
+            if (!aboveInRange && !belowInRange) {
+                break;
+            }
+            if (aboveInRange && worldProvider.getBlock(x, y + offset, z).isPenetrable()) {
+                return offset;
+            }
+            if (belowInRange && worldProvider.getBlock(x, y - offset, z).isPenetrable()) {
+                return -offset;
+            }
+        }
+        return cutOff ? NOT_LOADED : NOT_FOUND;
+    }
+
+    /**
+     * Moves the given position up or down to the nearest open spot in its column.
+     *
+     * @param position the position to resolve, only changed if an open spot was found
+     * @return true if an open spot was found
+     */
+    boolean resolve(Vector3f position) {
+        int offset = findOpenOffset(Math.round(position.x), Math.round(position.y), Math.round(position.z));
+        return resolve(position, offset);
+    }
+
+    private static boolean resolve(Vector3f position, int offset) {
+        if (offset == NOT_FOUND || offset == NOT_LOADED) {
+            return false;
+        }
+        position.y += offset;
+        return true;
+    }
+
+    /**
+     * Resolves every position in the batch that still needs an open spot searched for.
+     * Results for columns of a cached {@link SpawnArea} are recorded there so the column needn't be scanned again.
+     * Columns not fully loaded are left unknown, the chunks they reach into may have an open spot once loaded.
+     *
+     * @param batch the planned spawns, each entry is marked resolved or not
+     */
+    void resolveAll(SpawnBatch batch) {
+        for (int i = 0; i < batch.size(); i++) {
+            if (batch.needsScan(i)) {
+                Vector3f position = batch.getPosition(i);
+                int offset = findOpenOffset(Math.round(position.x), Math.round(position.y), Math.round(position.z));
+                boolean found = resolve(position, offset);
+                batch.setResolved(i, found);
+
+                SpawnArea area = batch.getArea(i);
+                if (area != null && offset != NOT_LOADED) {
+                    area.setOpenY(batch.getColumn(i), found ? Math.round(position.y) : SpawnArea.BLOCKED);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,191 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.spawning;
+
+import org.joml.Vector3fc;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.terasology.engine.entitySystem.entity.EntityRef;
+import org.terasology.engine.entitySystem.systems.BaseComponentSystem;
+import org.terasology.engine.entitySystem.systems.RegisterMode;
+import org.terasology.engine.entitySystem.systems.RegisterSystem;
+import org.terasology.engine.logic.console.commandSystem.annotations.Command;
+import org.terasology.engine.logic.console.commandSystem.annotations.CommandParam;
+import org.terasology.engine.registry.Share;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Optional record of what Spawners did, for finding out why something does or doesn't spawn. Off by default: callers
+ * check {@link #isEnabled()} first so nothing is formatted or allocated unless someone asked for it. When on, events
+ * are sampled and rate limited per Spawner, kept in a ring buffer that can be dumped from the console and logged at
+ * debug level.
+ */
+@RegisterSystem(RegisterMode.AUTHORITY)
+@Share(SpawnDiagnostics.class)
+public class SpawnDiagnostics extends BaseComponentSystem {
+
+    /**
+     * How a spawn attempt ended
+     */
+    public enum Outcome {
+        SPAWNED,
+        NO_OPEN_POSITION,
+        UNKNOWN_TYPE,
+        GLOBAL_CAP,
+        SPAWNER_CAP,
+        NOT_LOADED
+    }
+
+    public static final int DEFAULT_CAPACITY = 256;
+
+    private static final Logger logger = LoggerFactory.getLogger(SpawnDiagnostics.class);
+
+    private boolean enabled;
+    /** Keep only every n-th event */
+    private int sampleEvery = 1;
+    /** Keep at most one event per Spawner within this many ms */
+    private long minIntervalMs;
+
+    private final Map<Long, Long> lastEventBySpawner = new HashMap<>();
+    private long seen;
+
+    private Event[] events = new Event[DEFAULT_CAPACITY];
+    private int next;
+    private int size;
+
+    @Override
+    public void shutdown() {
+        enabled = false;
+        clear();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @param on whether to record events at all
+     * @param every keep only every so many events, 1 to keep all
+     * @param intervalMs keep at most one event per Spawner within this many ms, 0 for no limit
+     */
+    public void configure(boolean on, int every, long intervalMs) {
+        this.enabled = on;
+        this.sampleEvery = Math.max(1, every);
+        this.minIntervalMs = Math.max(0, intervalMs);
+        if (!on) {
+            lastEventBySpawner.clear();
+        }
+    }
+
+    /**
+     * @param capacity how many of the most recent events to keep, older ones are overwritten
+     */
+    public void setCapacity(int capacity) {
+        events = new Event[Math.max(1, capacity)];
+        next = 0;
+        size = 0;
+    }
+
+    public void clear() {
+        Arrays.fill(events, null);
+        next = 0;
+        size = 0;
+        seen = 0;
+        lastEventBySpawner.clear();
+    }
+
+    /**
+     * Records the outcome of a spawn attempt, if enabled and the sampling lets it through.
+     *
+     * @param now game time in ms
+     * @param spawner the Spawner that tried to spawn
+     * @param outcome how the attempt ended
+     * @param prefab what was (to be) spawned, null if not picked yet
+     * @param position where it was (to be) spawned, null if not picked yet
+     * @param population the Spawner's live Spawnables at the time
+     */
+    public void record(long now, EntityRef spawner, Outcome outcome, Object prefab, Vector3fc position,
+                       int population) {
+        if (!enabled || seen++ % sampleEvery != 0) {
+            return;
+        }
+        if (minIntervalMs > 0) {
+            Long last = lastEventBySpawner.get(spawner.getId());
+            if (last != null && now - last < minIntervalMs) {
+                return;
+            }
+            lastEventBySpawner.put(spawner.getId(), now);
+        }
+
+        Event event = new Event(now, spawner.getId(), outcome, prefab == null ? null : prefab.toString(),
+                position, population);
+        events[next] = event;
+        next = (next + 1) % events.length;
+        size = Math.min(size + 1, events.length);
+        logger.debug("{}", event);
+    }
+
+    /**
+     * @return the kept events, oldest first, one per line
+     */
+    public String dump() {
+        StringBuilder out = new StringBuilder();
+        int first = (next - size + events.length) % events.length;
+        for (int i = 0; i < size; i++) {
+            out.append(events[(first + i) % events.length]).append('\n');
+        }
+        return out.toString();
+    }
+
+    @Command(runOnServer = true, shortDescription = "Record sampled spawn attempts, every n-th and per Spawner at most "
+            + "once per interval")
+    public String spawnDiagnostics(@CommandParam("enabled") boolean on, @CommandParam("sampleEvery") int every,
+                                   @CommandParam("minIntervalMs") int intervalMs) {
+        configure(on, every, intervalMs);
+        return on ? "Recording every " + sampleEvery + " spawn attempt(s), per Spawner at most once per "
+                + minIntervalMs + "ms" : "Stopped recording spawn attempts";
+    }
+
+    @Command(runOnServer = true, shortDescription = "Show recorded spawn attempts, oldest first")
+    public String dumpSpawnDiagnostics() {
+        return size == 0 ? "No spawn attempts recorded" : dump();
+    }
+
+    /**
+     * One recorded spawn attempt
+     */
+    private static final class Event {
+        private final long time;
+        private final long spawner;
+        private final Outcome outcome;
+        private final String prefab;
+        private final boolean positioned;
+        private final float x;
+        private final float y;
+        private final float z;
+        private final int population;
+
+        private Event(long time, long spawner, Outcome outcome, String prefab, Vector3fc position, int population) {
+            this.time = time;
+            this.spawner = spawner;
+            this.outcome = outcome;
+            this.prefab = prefab;
+            this.positioned = position != null;
+            this.x = positioned ? position.x() : 0;
+            this.y = positioned ? position.y() : 0;
+            this.z = positioned ? position.z() : 0;
+            this.population = population;
+        }
+
+        @Override
+        public String toString() {
+            String at = positioned ? String.format(Locale.ROOT, " pos=(%.1f,%.1f,%.1f)", x, y, z) : "";
+            return "time=" + time + " spawner=" + spawner + " outcome=" + outcome
+                    + (prefab != null ? " prefab=" + prefab : "") + at + " population=" + population;
+        }
+    }
+}
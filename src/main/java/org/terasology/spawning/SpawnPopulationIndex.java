@@ -0,0 +1,82 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.spawning;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Running count of live Spawnables per Spawner, keyed by entity id.
+ * Kept up to date incrementally from component lifecycle events so cap checks never have to count entities.
+ * Ids are used rather than EntityRefs since a destroyed ref changes its id (and thus its hash).
+ */
+class SpawnPopulationIndex {
+
+    /** Id used for Spawnables that have no Spawner, those are not counted against any cap */
+    static final long NO_PARENT = 0;
+
+    private final Map<Long, Long> parentBySpawnable = new HashMap<>();
+    private final Map<Long, Integer> countBySpawner = new HashMap<>();
+    private int total;
+
+    /**
+     * Starts tracking a Spawnable, or moves it to a different Spawner if already tracked.
+     *
+     * @param spawnable id of the Spawnable entity
+     * @param spawner id of the Spawner that made it, or {@link #NO_PARENT}
+     */
+    void put(long spawnable, long spawner) {
+        Long previous = parentBySpawnable.get(spawnable);
+        if (previous != null) {
+            if (previous == spawner) {
+                return;
+            }
+            decrement(previous);
+        }
+        if (spawner == NO_PARENT) {
+            parentBySpawnable.remove(spawnable);
+            return;
+        }
+        parentBySpawnable.put(spawnable, spawner);
+        countBySpawner.merge(spawner, 1, Integer::sum);
+        total++;
+    }
+
+    /**
+     * Stops tracking a Spawnable, no-op if it wasn't tracked.
+     *
+     * @param spawnable id of the Spawnable entity
+     */
+    void remove(long spawnable) {
+        Long previous = parentBySpawnable.remove(spawnable);
+        if (previous != null) {
+            decrement(previous);
+        }
+    }
+
+    /**
+     * @param spawner id of the Spawner
+     * @return how many live Spawnables the given Spawner has made
+     */
+    int count(long spawner) {
+        return countBySpawner.getOrDefault(spawner, 0);
+    }
+
+    /**
+     * @return how many live Spawnables all Spawners have made together
+     */
+    int total() {
+        return total;
+    }
+
+    void clear() {
+        parentBySpawnable.clear();
+        countBySpawner.clear();
+        total = 0;
+    }
+
+    private void decrement(long spawner) {
+        countBySpawner.computeIfPresent(spawner, (key, count) -> count > 1 ? count - 1 : null);
+        total--;
+    }
+}
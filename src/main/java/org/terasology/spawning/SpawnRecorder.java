@@ -0,0 +1,227 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.spawning;
+
+import org.joml.Vector3f;
+import org.joml.Vector3fc;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.terasology.engine.core.Time;
+import org.terasology.engine.entitySystem.entity.EntityManager;
+import org.terasology.engine.entitySystem.entity.EntityRef;
+import org.terasology.engine.entitySystem.prefab.Prefab;
+import org.terasology.engine.entitySystem.prefab.PrefabManager;
+import org.terasology.engine.entitySystem.systems.BaseComponentSystem;
+import org.terasology.engine.entitySystem.systems.RegisterMode;
+import org.terasology.engine.entitySystem.systems.RegisterSystem;
+import org.terasology.engine.logic.console.commandSystem.annotations.Command;
+import org.terasology.engine.registry.In;
+import org.terasology.engine.registry.Share;
+
+/**
+ * Records what Spawners spawn, when and where, and plays it back later in place of the Spawners' own decisions. Each
+ * Spawner already draws from its own seeded random stream, but which Spawners are due in which frame depends on frame
+ * timing, so a replay is what makes a session's spawns repeat exactly, e.g. to compare server performance between
+ * load test runs.
+ * <p>
+ * The recording is stored on an entity of its own: save the game right after starting to record, then load that save
+ * and start the replay to get the same spawns again. Recording stops by itself after {@link #MAX_RECORDED_SPAWNS}
+ * spawns, so a forgotten recording doesn't grow the entity without limit.
+ */
+@RegisterSystem(RegisterMode.AUTHORITY)
+@Share(SpawnRecorder.class)
+public class SpawnRecorder extends BaseComponentSystem {
+
+    /**
+     * What the recorder is doing
+     */
+    public enum Mode {
+        OFF,
+        RECORDING,
+        REPLAYING
+    }
+
+    /**
+     * Carries out a replayed spawn.
+     */
+    public interface Replayer {
+        /**
+         * @param spawner the Spawner that originally spawned, {@link EntityRef#NULL} if it no longer exists
+         * @param prefab what to spawn
+         * @param position where to spawn it
+         */
+        void spawn(EntityRef spawner, Prefab prefab, Vector3fc position);
+    }
+
+    /** The most spawns kept in one recording, it is held in memory and saved as a whole */
+    public static final int MAX_RECORDED_SPAWNS = 100_000;
+
+    private static final Logger logger = LoggerFactory.getLogger(SpawnRecorder.class);
+
+    @In
+    private EntityManager entityManager;
+
+    @In
+    private PrefabManager prefabManager;
+
+    @In
+    private Time time;
+
+    private Mode mode = Mode.OFF;
+    private SpawnRecordingComponent recording;
+    private long startedAt;
+    private int replayed;
+
+    private final Vector3f replayPosition = new Vector3f();
+
+    @Override
+    public void shutdown() {
+        mode = Mode.OFF;
+        recording = null;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public boolean isRecording() {
+        return mode == Mode.RECORDING;
+    }
+
+    public boolean isReplaying() {
+        return mode == Mode.REPLAYING;
+    }
+
+    /**
+     * Starts a new recording, replacing the previous one.
+     */
+    public void startRecording() {
+        recording = new SpawnRecordingComponent();
+        startedAt = time.getGameTimeInMs();
+        mode = Mode.RECORDING;
+    }
+
+    /**
+     * Stops recording or replaying, a recording is stored so it is saved with the game.
+     *
+     * @return how many spawns were recorded or replayed
+     */
+    public int stop() {
+        int count = 0;
+        if (mode == Mode.RECORDING) {
+            count = recording.times.size();
+            EntityRef stored = findStoredRecording();
+            if (stored.exists()) {
+                stored.saveComponent(recording);
+            } else {
+                entityManager.create(recording);
+            }
+        } else if (mode == Mode.REPLAYING) {
+            count = replayed;
+        }
+        mode = Mode.OFF;
+        recording = null;
+        return count;
+    }
+
+    /**
+     * Starts playing back the stored recording from the current game time.
+     *
+     * @return how many spawns there are to replay, -1 if there is no stored recording
+     */
+    public int startReplay() {
+        EntityRef stored = findStoredRecording();
+        if (!stored.exists()) {
+            return -1;
+        }
+        recording = stored.getComponent(SpawnRecordingComponent.class);
+        startedAt = time.getGameTimeInMs();
+        replayed = 0;
+        mode = Mode.REPLAYING;
+        return recording.times.size();
+    }
+
+    /**
+     * Adds a spawn to the recording, no-op unless recording. Stops recording once it is full.
+     */
+    public void record(long now, EntityRef spawner, Prefab prefab, Vector3fc position) {
+        if (mode != Mode.RECORDING) {
+            return;
+        }
+        if (recording.times.size() >= MAX_RECORDED_SPAWNS) {
+            logger.warn("Spawn recording reached {} spawns, stopping it", MAX_RECORDED_SPAWNS);
+            stop();
+            return;
+        }
+        recording.times.add(now - startedAt);
+        recording.spawners.add(spawner.getId());
+        recording.prefabs.add(prefab.getUrn().toString());
+        recording.positions.add(position.x());
+        recording.positions.add(position.y());
+        recording.positions.add(position.z());
+    }
+
+    /**
+     * Replays every recorded spawn that is due by now, and stops once all were replayed.
+     *
+     * @param now current game time in ms
+     * @param replayer carries out the spawns
+     */
+    public void replayDue(long now, Replayer replayer) {
+        if (mode != Mode.REPLAYING) {
+            return;
+        }
+        int count = recording.times.size();
+        while (replayed < count && recording.times.get(replayed) <= now - startedAt) {
+            int i = replayed++;
+            Prefab prefab = prefabManager.getPrefab(recording.prefabs.get(i));
+            if (prefab == null) {
+                logger.warn("Skipping replayed spawn of unknown prefab {}", recording.prefabs.get(i));
+                continue;
+            }
+            EntityRef spawner = entityManager.getEntity(recording.spawners.get(i));
+            replayPosition.set(recording.positions.get(i * 3), recording.positions.get(i * 3 + 1),
+                    recording.positions.get(i * 3 + 2));
+            replayer.spawn(spawner.exists() ? spawner : EntityRef.NULL, prefab, replayPosition);
+        }
+        if (replayed >= count) {
+            logger.info("Replayed all {} recorded spawns", count);
+            stop();
+        }
+    }
+
+    private EntityRef findStoredRecording() {
+        for (EntityRef entity : entityManager.getEntitiesWith(SpawnRecordingComponent.class)) {
+            return entity;
+        }
+        return EntityRef.NULL;
+    }
+
+    @Command(runOnServer = true, shortDescription = "Record all spawns until stopSpawnRecording, replacing the "
+            + "previous recording")
+    public String startSpawnRecording() {
+        startRecording();
+        return "Recording up to " + MAX_RECORDED_SPAWNS
+                + " spawns, save the game now to replay them from this point later";
+    }
+
+    @Command(runOnServer = true, shortDescription = "Stop recording or replaying spawns")
+    public String stopSpawnRecording() {
+        Mode was = mode;
+        int count = stop();
+        switch (was) {
+            case RECORDING:
+                return "Recorded " + count + " spawns";
+            case REPLAYING:
+                return "Stopped replay after " + count + " spawns";
+            default:
+                return "Not recording or replaying spawns";
+        }
+    }
+
+    @Command(runOnServer = true, shortDescription = "Replay the recorded spawns in place of what Spawners would do")
+    public String replaySpawnRecording() {
+        int count = startReplay();
+        return count < 0 ? "No recorded spawns to replay" : "Replaying " + count + " recorded spawns";
+    }
+}
@@ -0,0 +1,35 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.spawning;
+
+import com.google.common.collect.Lists;
+import org.terasology.gestalt.entitysystem.component.Component;
+
+import java.util.List;
+
+/**
+ * Spawns recorded by the {@link SpawnRecorder}, kept on an entity of their own so they are saved with the game and
+ * can be replayed from a copy of the save. Entry i of every list belongs to the i-th spawn.
+ */
+public class SpawnRecordingComponent implements Component<SpawnRecordingComponent> {
+
+    /** Game time in ms since the recording started */
+    public List<Long> times = Lists.newArrayList();
+
+    /** Id of the Spawner that spawned */
+    public List<Long> spawners = Lists.newArrayList();
+
+    /** Urn of the spawned prefab */
+    public List<String> prefabs = Lists.newArrayList();
+
+    /** Where it was spawned, three entries (x, y, z) per spawn */
+    public List<Float> positions = Lists.newArrayList();
+
+    @Override
+    public void copyFrom(SpawnRecordingComponent other) {
+        this.times = Lists.newArrayList(other.times);
+        this.spawners = Lists.newArrayList(other.spawners);
+        this.prefabs = Lists.newArrayList(other.prefabs);
+        this.positions = Lists.newArrayList(other.positions);
+    }
+}
@@ -2,6 +2,7 @@
 // SPDX-License-Identifier: Apache-2.0
 package org.terasology.spawning;
 
+import com.google.common.collect.Sets;
 import org.terasology.engine.entitySystem.entity.EntityRef;
 import org.terasology.gestalt.entitysystem.component.Component;
 
@@ -26,16 +27,26 @@ public class SpawnableComponent implements Component<SpawnableComponent> {
     /** What made this Spawnable? */
     public EntityRef parent =  EntityRef.NULL;
 
+    /** Whether to park this Spawnable for reuse when it despawns instead of destroying it, see SpawnablePool */
+    public boolean pooled;
+
+    /** Despawn once no player is within this many blocks, 0 to never despawn. Hierarchical AIs use their own */
+    public int despawnDistance = 128;
+
+    /** Keep this Spawnable around no matter how far players go */
+    public boolean persistent;
+
     @Override
     public void copyFrom(SpawnableComponent other) {
         this.type = other.type;
         this.probability = other.probability;
         this.itemToConsume = other.itemToConsume;
         this.parent = other.parent;
+        this.pooled = other.pooled;
+        this.despawnDistance = other.despawnDistance;
+        this.persistent = other.persistent;
 
-        this.tags.clear();
-        this.tags.addAll(other.tags);
-
+        this.tags = Sets.newHashSet(other.tags);
     }
 
     //TODO add darkness level and biome when map generation has reached better level
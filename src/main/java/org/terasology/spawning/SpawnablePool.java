@@ -0,0 +1,221 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.spawning;
+
+import org.joml.Vector3fc;
+import org.terasology.engine.entitySystem.entity.EntityManager;
+import org.terasology.engine.entitySystem.entity.EntityRef;
+import org.terasology.engine.entitySystem.metadata.ComponentFieldMetadata;
+import org.terasology.engine.entitySystem.metadata.ComponentMetadata;
+import org.terasology.engine.entitySystem.prefab.Prefab;
+import org.terasology.engine.entitySystem.systems.BaseComponentSystem;
+import org.terasology.engine.entitySystem.systems.RegisterMode;
+import org.terasology.engine.entitySystem.systems.RegisterSystem;
+import org.terasology.engine.logic.console.commandSystem.annotations.Command;
+import org.terasology.engine.logic.console.commandSystem.annotations.CommandParam;
+import org.terasology.engine.logic.location.LocationComponent;
+import org.terasology.engine.network.NetworkComponent;
+import org.terasology.engine.registry.In;
+import org.terasology.engine.registry.Share;
+import org.terasology.gestalt.assets.ResourceUrn;
+import org.terasology.gestalt.entitysystem.component.Component;
+import org.terasology.spawning.ai.HierarchicalAIComponent;
+import org.terasology.spawning.ai.SimpleAIComponent;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Keeps despawned Spawnables around to be reused by the next spawn of the same prefab instead of destroying them and
+ * building new ones. Only applies to Spawnables whose {@link SpawnableComponent#pooled} is set.
+ * <p>
+ * A parked Spawnable has its LocationComponent removed, which deactivates it for every system needing a location
+ * (physics, rendering), and its AI and network components removed so no AI keeps it scheduled and clients drop it. It
+ * is detached from its Spawner and isn't persisted. Reusing it resets its components to the prefab's values, gives it
+ * a location again and adds back what was removed.
+ */
+@RegisterSystem(RegisterMode.AUTHORITY)
+@Share(SpawnablePool.class)
+public class SpawnablePool extends BaseComponentSystem {
+
+    public static final int DEFAULT_MAX_PER_PREFAB = 32;
+
+    /** Removed from parked Spawnables besides the location, re-added from the prefab on reuse */
+    private static final List<Class<? extends Component>> PARKED_WITHOUT =
+            List.of(SimpleAIComponent.class, HierarchicalAIComponent.class, NetworkComponent.class);
+
+    @In
+    private EntityManager entityManager;
+
+    @In
+    private SpawningMetrics metrics;
+
+    private final Map<ResourceUrn, Deque<EntityRef>> parkedByPrefab = new HashMap<>();
+    private int maxPerPrefab = DEFAULT_MAX_PER_PREFAB;
+    private int size;
+
+    @Override
+    public void shutdown() {
+        clear();
+    }
+
+    /**
+     * @param max the most Spawnables to keep parked per prefab, 0 to pool nothing
+     */
+    public void setMaxPerPrefab(int max) {
+        this.maxPerPrefab = Math.max(0, max);
+    }
+
+    public int getMaxPerPrefab() {
+        return maxPerPrefab;
+    }
+
+    /**
+     * @return how many Spawnables are parked across all prefabs
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Destroys all parked Spawnables.
+     */
+    public void clear() {
+        for (Deque<EntityRef> parked : parkedByPrefab.values()) {
+            for (EntityRef entity : parked) {
+                entity.destroy();
+            }
+        }
+        parkedByPrefab.clear();
+        size = 0;
+    }
+
+    /**
+     * Gets rid of an entity that isn't needed anymore: parks it if it is a pooled Spawnable and there is room,
+     * destroys it otherwise.
+     *
+     * @param entity the entity to despawn
+     */
+    public void despawn(EntityRef entity) {
+        if (!entity.exists()) {
+            return;
+        }
+        SpawnableComponent spawnable = entity.getComponent(SpawnableComponent.class);
+        Prefab prefab = entity.getParentPrefab();
+        if (spawnable == null || !spawnable.pooled || prefab == null || maxPerPrefab == 0) {
+            entity.destroy();
+            return;
+        }
+        Deque<EntityRef> parked = parkedByPrefab.computeIfAbsent(prefab.getUrn(), urn -> new ArrayDeque<>());
+        if (parked.size() >= maxPerPrefab) {
+            metrics.increment(SpawningMetrics.Counter.POOL_OVERFLOWS);
+            entity.destroy();
+            return;
+        }
+
+        // No parent means not counted against any Spawner, no location means inactive for everything that moves
+        spawnable.parent = EntityRef.NULL;
+        entity.saveComponent(spawnable);
+        entity.removeComponent(LocationComponent.class);
+        for (Class<? extends Component> componentClass : PARKED_WITHOUT) {
+            if (entity.hasComponent(componentClass)) {
+                entity.removeComponent(componentClass);
+            }
+        }
+        entity.setPersistent(false);
+        parked.addLast(entity);
+        size++;
+        metrics.increment(SpawningMetrics.Counter.POOL_PARKED);
+    }
+
+    /**
+     * Takes a parked Spawnable of the given prefab, resets it and places it in the world. Whatever the caller adds to
+     * new Spawnables of the prefab besides its components is up to the caller to add again.
+     *
+     * @param prefab the prefab to spawn
+     * @param position where to spawn
+     * @param parent the Spawner spawning it
+     * @return the reused Spawnable, or {@link EntityRef#NULL} if none of that prefab is parked
+     */
+    public EntityRef obtain(Prefab prefab, Vector3fc position, EntityRef parent) {
+        Deque<EntityRef> parked = parkedByPrefab.get(prefab.getUrn());
+        while (parked != null && !parked.isEmpty()) {
+            EntityRef entity = parked.pollLast();
+            size--;
+            // Parked entities may have been destroyed by someone else meanwhile
+            if (!entity.exists()) {
+                continue;
+            }
+
+            List<Component> missing = reset(entity, prefab);
+            // All of it, e.g. despawnDistance, persistent and tags may have been changed while it was alive
+            SpawnableComponent spawnable = entity.getComponent(SpawnableComponent.class);
+            SpawnableComponent prefabSpawnable = prefab.getComponent(SpawnableComponent.class);
+            spawnable.copyFrom(prefabSpawnable != null ? prefabSpawnable : new SpawnableComponent());
+            spawnable.parent = parent;
+            entity.saveComponent(spawnable);
+
+            LocationComponent location = new LocationComponent();
+            LocationComponent prefabLocation = prefab.getComponent(LocationComponent.class);
+            if (prefabLocation != null) {
+                location.copyFrom(prefabLocation);
+            }
+            location.setWorldPosition(position);
+            entity.setPersistent(prefab.isPersisted());
+            entity.addComponent(location);
+            // Added after the location so AI and network systems see the Spawnable where it is now
+            for (Component component : missing) {
+                entity.addComponent(component);
+            }
+
+            metrics.increment(SpawningMetrics.Counter.POOL_REUSED);
+            return entity;
+        }
+        return EntityRef.NULL;
+    }
+
+    /**
+     * Puts the state a Spawnable picked up while alive back to what its prefab says, only saving components that
+     * differ from it. The SpawnableComponent and location are set up by the caller.
+     *
+     * @return copies of the prefab's components the entity no longer has, e.g. those removed while parked
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private List<Component> reset(EntityRef entity, Prefab prefab) {
+        List<Component> missing = new ArrayList<>();
+        for (Component prefabComponent : prefab.iterateComponents()) {
+            if (prefabComponent instanceof LocationComponent || prefabComponent instanceof SpawnableComponent) {
+                continue;
+            }
+            Component current = entity.getComponent(prefabComponent.getClass());
+            if (current == null) {
+                missing.add(entityManager.getComponentLibrary().copy(prefabComponent));
+            } else if (!sameFields(current, prefabComponent)) {
+                current.copyFrom(prefabComponent);
+                entity.saveComponent(current);
+            }
+        }
+        return missing;
+    }
+
+    private boolean sameFields(Component current, Component prefabComponent) {
+        ComponentMetadata<?> metadata = entityManager.getComponentLibrary().getMetadata(current.getClass());
+        for (ComponentFieldMetadata<?, ?> field : metadata.getFields()) {
+            if (!Objects.deepEquals(field.getValue(current), field.getValue(prefabComponent))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Command(runOnServer = true, shortDescription = "Set how many despawned Spawnables to keep per prefab for reuse")
+    public String setSpawnablePoolSize(@CommandParam("maxPerPrefab") int max) {
+        setMaxPerPrefab(max);
+        return "Keeping up to " + maxPerPrefab + " despawned Spawnables per prefab, " + size + " parked now";
+    }
+}
@@ -0,0 +1,255 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.spawning;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.terasology.engine.entitySystem.prefab.Prefab;
+import org.terasology.engine.entitySystem.prefab.PrefabManager;
+import org.terasology.engine.entitySystem.systems.BaseComponentSystem;
+import org.terasology.engine.entitySystem.systems.RegisterSystem;
+import org.terasology.engine.logic.console.commandSystem.annotations.Command;
+import org.terasology.engine.registry.In;
+import org.terasology.engine.registry.Share;
+import org.terasology.gestalt.assets.ResourceUrn;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Cache of Spawnable prefabs mapped to their spawnable "tags" - each tag may reference multiple prefabs and each
+ * prefab may have multiple tags ("Goblin", "Spearman", "Goblin Spearman", "QuestMob123").
+ * <p>
+ * Readers get an immutable, versioned {@link Snapshot} without any locking. {@link #refresh()} compares the loaded
+ * prefabs to the current snapshot and publishes a new one only if some were added, changed or removed, reusing the
+ * prefab sets and tables of every tag the change didn't touch.
+ */
+@RegisterSystem
+@Share(SpawnablePrefabCache.class)
+public class SpawnablePrefabCache extends BaseComponentSystem {
+
+    private static final Logger logger = LoggerFactory.getLogger(SpawnablePrefabCache.class);
+
+    @In
+    private PrefabManager prefabManager;
+
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+    @Override
+    public void initialise() {
+        refresh();
+    }
+
+    @Override
+    public void shutdown() {
+        snapshot = Snapshot.EMPTY;
+    }
+
+    /**
+     * @return the current state of the cache, never changes once obtained
+     */
+    public Snapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * @return the version of the current snapshot, bumped whenever a change is applied
+     */
+    public long getVersion() {
+        return snapshot.version;
+    }
+
+    /**
+     * Brings the cache in line with the prefabs currently loaded, e.g. after modules or prefabs were reloaded.
+     * Only prefabs that were actually added, changed or removed are applied, so nothing changes if nothing did.
+     *
+     * @return the number of prefabs added, changed or removed
+     */
+    public synchronized int refresh() {
+        Map<ResourceUrn, Entry> changed = new HashMap<>();
+        Set<ResourceUrn> seen = Sets.newHashSet();
+        for (Prefab prefab : prefabManager.listPrefabs(SpawnableComponent.class)) {
+            Entry entry = Entry.of(prefab);
+            if (entry == null) {
+                continue;
+            }
+            seen.add(prefab.getUrn());
+            if (!entry.equals(snapshot.entries.get(prefab.getUrn()))) {
+                changed.put(prefab.getUrn(), entry);
+            }
+        }
+        Set<ResourceUrn> removed = Sets.difference(snapshot.entries.keySet(), seen).immutableCopy();
+
+        if (!changed.isEmpty() || !removed.isEmpty()) {
+            publish(changed, removed);
+        }
+        return changed.size() + removed.size();
+    }
+
+    @Command(runOnServer = true, shortDescription = "Re-check loaded prefabs for added, changed or removed Spawnables")
+    public String refreshSpawnables() {
+        int changes = refresh();
+        return "Applied " + changes + " Spawnable prefab change(s), cache is at version " + getVersion();
+    }
+
+    /**
+     * Builds and publishes the next snapshot from the current one, only touching the tags of prefabs that changed.
+     */
+    private void publish(Map<ResourceUrn, Entry> changed, Set<ResourceUrn> removed) {
+        Snapshot current = snapshot;
+        Map<ResourceUrn, Entry> entries = new HashMap<>(current.entries);
+        // Prefab sets of the tags the change touches, copied from the current snapshot on first touch
+        Map<String, Set<Prefab>> touched = new HashMap<>();
+
+        for (ResourceUrn urn : removed) {
+            Entry old = entries.remove(urn);
+            if (old != null) {
+                untag(old, current, touched);
+            }
+        }
+        for (Map.Entry<ResourceUrn, Entry> change : changed.entrySet()) {
+            Entry old = entries.put(change.getKey(), change.getValue());
+            if (old != null) {
+                untag(old, current, touched);
+            }
+            for (String tag : change.getValue().tags) {
+                touchedPrefabs(tag, current, touched).add(change.getValue().prefab);
+            }
+        }
+
+        Map<String, ImmutableSet<Prefab>> prefabsByTag = new HashMap<>(current.prefabsByTag);
+        Map<String, AliasTable<Prefab>> tables = new HashMap<>(current.tables);
+        for (Map.Entry<String, Set<Prefab>> tag : touched.entrySet()) {
+            if (tag.getValue().isEmpty()) {
+                prefabsByTag.remove(tag.getKey());
+                tables.remove(tag.getKey());
+            } else {
+                prefabsByTag.put(tag.getKey(), ImmutableSet.copyOf(tag.getValue()));
+                tables.put(tag.getKey(), buildTable(tag.getValue(), entries));
+            }
+        }
+
+        snapshot = new Snapshot(current.version + 1, ImmutableMap.copyOf(entries), ImmutableMap.copyOf(prefabsByTag),
+                ImmutableMap.copyOf(tables));
+        logger.info("Spawnable prefab cache at version {}: {} prefab(s) changed, {} removed, {} tag(s) affected",
+                snapshot.version, changed.size(), removed.size(), touched.size());
+    }
+
+    private static void untag(Entry entry, Snapshot current, Map<String, Set<Prefab>> touched) {
+        for (String tag : entry.tags) {
+            touchedPrefabs(tag, current, touched).remove(entry.prefab);
+        }
+    }
+
+    private static Set<Prefab> touchedPrefabs(String tag, Snapshot current, Map<String, Set<Prefab>> touched) {
+        return touched.computeIfAbsent(tag, key -> new LinkedHashSet<>(current.getPrefabs(key)));
+    }
+
+    private static AliasTable<Prefab> buildTable(Collection<Prefab> prefabs, Map<ResourceUrn, Entry> entries) {
+        List<Prefab> candidates = Lists.newArrayList(prefabs);
+        double[] weights = new double[candidates.size()];
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = entries.get(candidates.get(i).getUrn()).weight;
+        }
+        return AliasTable.of(candidates, weights);
+    }
+
+    /**
+     * Immutable view of the cache at one point in time.
+     */
+    public static final class Snapshot {
+
+        private static final Snapshot EMPTY =
+                new Snapshot(0, ImmutableMap.of(), ImmutableMap.of(), ImmutableMap.of());
+
+        private final long version;
+        private final ImmutableMap<ResourceUrn, Entry> entries;
+        private final ImmutableMap<String, ImmutableSet<Prefab>> prefabsByTag;
+        private final ImmutableMap<String, AliasTable<Prefab>> tables;
+
+        private Snapshot(long version, ImmutableMap<ResourceUrn, Entry> entries,
+                         ImmutableMap<String, ImmutableSet<Prefab>> prefabsByTag,
+                         ImmutableMap<String, AliasTable<Prefab>> tables) {
+            this.version = version;
+            this.entries = entries;
+            this.prefabsByTag = prefabsByTag;
+            this.tables = tables;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        /**
+         * @return every tag at least one Spawnable prefab has
+         */
+        public Set<String> getTags() {
+            return prefabsByTag.keySet();
+        }
+
+        /**
+         * @param tag the spawnable tag to look up
+         * @return the prefabs with the given tag, empty if none
+         */
+        public Set<Prefab> getPrefabs(String tag) {
+            return prefabsByTag.getOrDefault(tag, ImmutableSet.of());
+        }
+
+        /**
+         * @param tag the spawnable tag to look up
+         * @return the prefabs with the given tag weighted by their probability, empty if none
+         */
+        AliasTable<Prefab> getTable(String tag) {
+            return tables.getOrDefault(tag, AliasTable.empty());
+        }
+    }
+
+    /**
+     * What the cache knows about one prefab, compared to tell whether a prefab changed.
+     */
+    private static final class Entry {
+        private final Prefab prefab;
+        private final ImmutableSet<String> tags;
+        private final int weight;
+
+        private Entry(Prefab prefab, ImmutableSet<String> tags, int weight) {
+            this.prefab = prefab;
+            this.tags = tags;
+            this.weight = weight;
+        }
+
+        private static Entry of(Prefab prefab) {
+            SpawnableComponent spawnable = prefab.getComponent(SpawnableComponent.class);
+            if (spawnable == null || prefab.isDisposed()) {
+                return null;
+            }
+            // Probability is a byte but documented as 0-255, so read it unsigned
+            return new Entry(prefab, ImmutableSet.copyOf(spawnable.tags), spawnable.probability & 0xFF);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Entry)) {
+                return false;
+            }
+            Entry other = (Entry) o;
+            return prefab == other.prefab && weight == other.weight && tags.equals(other.tags);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * System.identityHashCode(prefab) + tags.hashCode()) + weight;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.spawning;
+
+import org.joml.Vector3fc;
+import org.terasology.engine.entitySystem.entity.EntityRef;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Decides which Spawners are awake: a Spawner is awake while a player is within its activation radius and asleep
+ * otherwise. Checked every so often by looking around each player in a spatial index of Spawners, so sleeping
+ * Spawners cost nothing in between and only Spawners near players are looked at during a check.
+ */
+final class SpawnerActivation {
+
+    /**
+     * Told when Spawners wake up or fall asleep
+     */
+    interface Listener {
+        void onWake(EntityRef spawner);
+
+        void onSleep(EntityRef spawner);
+    }
+
+    /** How often in ms to check which Spawners have players around */
+    static final long CHECK_INTERVAL_MS = 1000;
+
+    private final SpatialHash spawners = new SpatialHash(5);
+    private final Map<Long, Integer> radii = new HashMap<>();
+    private final Map<Long, Awake> awake = new HashMap<>();
+    private float maxRadius;
+    private long generation;
+    private long nextCheckAt;
+
+    /** Only set during a check */
+    private Listener listener;
+
+    /**
+     * Adds a Spawner, or updates its position and radius. It stays asleep until the next check finds a player near.
+     *
+     * @param spawner the spawner entity
+     * @param position where it is
+     * @param radius how close a player must be to wake it, must be positive
+     */
+    void put(EntityRef spawner, Vector3fc position, int radius) {
+        spawners.put(spawner, position);
+        Integer previous = radii.put(spawner.getId(), radius);
+        if (radius >= maxRadius) {
+            maxRadius = radius;
+        } else if (previous != null && previous >= maxRadius) {
+            recomputeMaxRadius();
+        }
+    }
+
+    /**
+     * Removes a Spawner whether awake or not, without telling the listener.
+     */
+    void remove(EntityRef spawner) {
+        spawners.remove(spawner);
+        Integer radius = radii.remove(spawner.getId());
+        awake.remove(spawner.getId());
+        if (radius != null && radius >= maxRadius) {
+            recomputeMaxRadius();
+        }
+    }
+
+    boolean contains(EntityRef spawner) {
+        return radii.containsKey(spawner.getId());
+    }
+
+    boolean isAwake(EntityRef spawner) {
+        return awake.containsKey(spawner.getId());
+    }
+
+    int size() {
+        return radii.size();
+    }
+
+    int getAwakeCount() {
+        return awake.size();
+    }
+
+    void clear() {
+        spawners.clear();
+        radii.clear();
+        awake.clear();
+        maxRadius = 0;
+        nextCheckAt = 0;
+    }
+
+    /**
+     * Wakes Spawners that got a player near and puts those that lost them to sleep, if it is time for a check.
+     *
+     * @param now current game time in ms
+     * @param proximityIndex where the players are
+     * @param changes told about every Spawner waking up or falling asleep
+     */
+    void update(long now, ProximityIndex proximityIndex, Listener changes) {
+        if (now < nextCheckAt) {
+            return;
+        }
+        nextCheckAt = now + CHECK_INTERVAL_MS;
+        generation++;
+
+        listener = changes;
+        try {
+            proximityIndex.forEachPlayerPosition(this::visitPlayer);
+            for (Iterator<Awake> it = awake.values().iterator(); it.hasNext(); ) {
+                Awake spawner = it.next();
+                if (spawner.seenAt != generation) {
+                    it.remove();
+                    changes.onSleep(spawner.entity);
+                }
+            }
+        } finally {
+            listener = null;
+        }
+    }
+
+    /**
+     * Looks for the largest radius again after the Spawner having it shrank or left, so the search around players
+     * doesn't stay wider than any Spawner needs.
+     */
+    private void recomputeMaxRadius() {
+        int max = 0;
+        for (int radius : radii.values()) {
+            max = Math.max(max, radius);
+        }
+        maxRadius = max;
+    }
+
+    private void visitPlayer(Vector3fc playerPosition) {
+        spawners.forEachNeighbour(playerPosition, maxRadius, this::visitSpawner);
+    }
+
+    private void visitSpawner(EntityRef spawner, float distanceSquared) {
+        Integer radius = radii.get(spawner.getId());
+        if (radius == null || distanceSquared > (float) radius * radius) {
+            return;
+        }
+        Awake state = awake.get(spawner.getId());
+        if (state == null) {
+            state = new Awake(spawner);
+            awake.put(spawner.getId(), state);
+            listener.onWake(spawner);
+        }
+        state.seenAt = generation;
+    }
+
+    private static final class Awake {
+        private final EntityRef entity;
+        private long seenAt;
+
+        private Awake(EntityRef entity) {
+            this.entity = entity;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.spawning;
+
+import org.joml.RoundingMode;
+import org.joml.Vector3fc;
+import org.joml.Vector3i;
+import org.joml.Vector3ic;
+import org.terasology.engine.entitySystem.entity.EntityRef;
+import org.terasology.engine.world.chunks.Chunks;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Which chunk each Spawner is in, so all Spawners of a chunk can be dropped in one go when it unloads instead of
+ * waiting for each of their entities to be deactivated. Spawners are keyed by id.
+ */
+final class SpawnerChunkIndex {
+
+    private final Map<Long, Map<Long, EntityRef>> spawnersByChunk = new HashMap<>();
+    private final Map<Long, Long> chunkBySpawner = new HashMap<>();
+    private final Vector3i chunkPos = new Vector3i();
+
+    /**
+     * Adds a Spawner or moves it to the chunk of its new position.
+     */
+    void put(EntityRef spawner, Vector3fc position) {
+        // Rounded the way the engine places entities into chunks
+        Chunks.toChunkPos(chunkPos.set(position, RoundingMode.HALF_UP), chunkPos);
+        long chunk = chunkKey(chunkPos.x(), chunkPos.y(), chunkPos.z());
+        Long previous = chunkBySpawner.put(spawner.getId(), chunk);
+        if (previous != null && previous == chunk) {
+            return;
+        }
+        if (previous != null) {
+            removeFromChunk(previous, spawner.getId());
+        }
+        spawnersByChunk.computeIfAbsent(chunk, key -> new HashMap<>()).put(spawner.getId(), spawner);
+    }
+
+    void remove(EntityRef spawner) {
+        Long chunk = chunkBySpawner.remove(spawner.getId());
+        if (chunk != null) {
+            removeFromChunk(chunk, spawner.getId());
+        }
+    }
+
+    /**
+     * Forgets every Spawner in the given chunk.
+     *
+     * @param chunkPos position of the chunk in chunk coordinates
+     * @return the Spawners that were in it
+     */
+    Collection<EntityRef> removeChunk(Vector3ic chunkPos) {
+        Map<Long, EntityRef> spawners = spawnersByChunk.remove(chunkKey(chunkPos.x(), chunkPos.y(), chunkPos.z()));
+        if (spawners == null) {
+            return Collections.emptyList();
+        }
+        for (Long spawner : spawners.keySet()) {
+            chunkBySpawner.remove(spawner);
+        }
+        return spawners.values();
+    }
+
+    int size() {
+        return chunkBySpawner.size();
+    }
+
+    void clear() {
+        spawnersByChunk.clear();
+        chunkBySpawner.clear();
+    }
+
+    private void removeFromChunk(long chunk, long spawner) {
+        Map<Long, EntityRef> spawners = spawnersByChunk.get(chunk);
+        if (spawners != null) {
+            spawners.remove(spawner);
+            if (spawners.isEmpty()) {
+                spawnersByChunk.remove(chunk);
+            }
+        }
+    }
+
+    /**
+     * Packs chunk coordinates into a key, 24 bits each for x and z and 16 for y - far beyond any world's size.
+     */
+    private static long chunkKey(int chunkX, int chunkY, int chunkZ) {
+        return ((chunkX & 0xFFFFFFL) << 40) | ((chunkY & 0xFFFFL) << 24) | (chunkZ & 0xFFFFFFL);
+    }
+}
@@ -29,8 +29,28 @@ public class SpawnerComponent implements Component<SpawnerComponent> {
     public boolean rangedSpawning;
 
     public int range = 20;
+
+    /** Spawn no closer to the Spawner than this squared distance in blocks, e.g. 100 for 10 blocks */
     public int minDistance;
 
+    /**
+     * The Spawner sleeps unless a player is within this many blocks. The default of 0 keeps it awake all the time,
+     * prefabs opt in to sleeping by setting a radius.
+     */
+    public int activationRadius;
+
+    /** How many Spawnables to spawn together on each attempt, 1 spawns them one at a time as usual */
+    public int waveSize = 1;
+
+    /** Spawnables of a wave after the first are scattered up to this far around it, 0 places each on its own */
+    public int waveSpread;
+
+    /** Minimum time in ms between two waves, on top of the period */
+    public int waveCooldown;
+
+    /** Game time in ms of the last wave */
+    public long lastWaveAt;
+
     @Override
     public void copyFrom(SpawnerComponent other) {
         this.types = Lists.newArrayList(other.types);
@@ -40,5 +60,10 @@ public class SpawnerComponent implements Component<SpawnerComponent> {
         this.rangedSpawning = other.rangedSpawning;
         this.range = other.range;
         this.minDistance = other.minDistance;
+        this.activationRadius = other.activationRadius;
+        this.waveSize = other.waveSize;
+        this.waveSpread = other.waveSpread;
+        this.waveCooldown = other.waveCooldown;
+        this.lastWaveAt = other.lastWaveAt;
     }
 }
@@ -0,0 +1,110 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.spawning;
+
+import org.terasology.engine.entitySystem.entity.EntityRef;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Queue of Spawners ordered by when they are next due to attempt a spawn, so only due Spawners are ever looked at.
+ * Rescheduling or removing a Spawner just marks its old entry as stale, stale entries are dropped when they surface.
+ */
+class SpawnerSchedule {
+
+    private final PriorityQueue<Entry> queue = new PriorityQueue<>(Comparator.comparingLong(entry -> entry.dueAt));
+    private final Map<Long, Entry> entries = new HashMap<>();
+
+    /**
+     * Schedules a Spawner, replacing any time it was already scheduled for.
+     *
+     * @param spawner the spawner entity
+     * @param dueAt game time in ms at which the Spawner should next be processed
+     */
+    void schedule(EntityRef spawner, long dueAt) {
+        Entry previous = entries.get(spawner.getId());
+        if (previous != null) {
+            if (previous.dueAt == dueAt) {
+                return;
+            }
+            previous.stale = true;
+        }
+        Entry entry = new Entry(spawner, dueAt);
+        entries.put(entry.id, entry);
+        queue.add(entry);
+    }
+
+    /**
+     * Removes a Spawner from the schedule, no-op if it wasn't scheduled.
+     *
+     * @param spawner the spawner entity, must not be destroyed yet
+     */
+    void unschedule(EntityRef spawner) {
+        Entry previous = entries.remove(spawner.getId());
+        if (previous != null) {
+            previous.stale = true;
+        }
+    }
+
+    /**
+     * @return a copy of the Spawners currently scheduled, in no particular order, safe to reschedule while iterating
+     */
+    List<EntityRef> getScheduled() {
+        List<EntityRef> scheduled = new ArrayList<>(entries.size());
+        for (Entry entry : entries.values()) {
+            scheduled.add(entry.spawner);
+        }
+        return scheduled;
+    }
+
+    boolean isScheduled(EntityRef spawner) {
+        return entries.containsKey(spawner.getId());
+    }
+
+    /**
+     * Takes the next Spawner that is due, it is no longer scheduled afterwards.
+     *
+     * @param now current game time in ms
+     * @return the next due spawner entity, or null if none is due
+     */
+    EntityRef pollDue(long now) {
+        while (!queue.isEmpty() && queue.peek().dueAt <= now) {
+            Entry entry = queue.poll();
+            if (!entry.stale) {
+                entries.remove(entry.id);
+                return entry.spawner;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return how many Spawners are scheduled
+     */
+    int size() {
+        return entries.size();
+    }
+
+    void clear() {
+        queue.clear();
+        entries.clear();
+    }
+
+    private static final class Entry {
+        private final EntityRef spawner;
+        private final long id;
+        private final long dueAt;
+        private boolean stale;
+
+        private Entry(EntityRef spawner, long dueAt) {
+            this.spawner = spawner;
+            this.id = spawner.getId();
+            this.dueAt = dueAt;
+        }
+    }
+}
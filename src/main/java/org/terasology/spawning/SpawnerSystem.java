@@ -2,36 +2,42 @@
 // SPDX-License-Identifier: Apache-2.0
 package org.terasology.spawning;
 
-import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Lists;
-import com.google.common.collect.SetMultimap;
 import org.joml.Vector3f;
+import org.joml.Vector3fc;
+import org.joml.Vector3ic;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.terasology.engine.core.Time;
+import org.terasology.engine.entitySystem.MutableComponentContainer;
+import org.terasology.engine.entitySystem.entity.EntityBuilder;
 import org.terasology.engine.entitySystem.entity.EntityManager;
 import org.terasology.engine.entitySystem.entity.EntityRef;
-import org.terasology.engine.entitySystem.entity.lifecycleEvents.BeforeRemoveComponent;
-import org.terasology.engine.entitySystem.entity.lifecycleEvents.OnAddedComponent;
+import org.terasology.engine.entitySystem.entity.lifecycleEvents.BeforeDeactivateComponent;
+import org.terasology.engine.entitySystem.entity.lifecycleEvents.OnActivatedComponent;
+import org.terasology.engine.entitySystem.entity.lifecycleEvents.OnChangedComponent;
 import org.terasology.engine.entitySystem.prefab.Prefab;
-import org.terasology.engine.entitySystem.prefab.PrefabManager;
 import org.terasology.engine.entitySystem.systems.BaseComponentSystem;
 import org.terasology.engine.entitySystem.systems.RegisterMode;
 import org.terasology.engine.entitySystem.systems.RegisterSystem;
 import org.terasology.engine.entitySystem.systems.UpdateSubscriberSystem;
-import org.terasology.engine.logic.delay.DelayManager;
-import org.terasology.engine.logic.delay.PeriodicActionTriggeredEvent;
 import org.terasology.engine.logic.location.LocationComponent;
 import org.terasology.engine.monitoring.PerformanceMonitor;
 import org.terasology.engine.registry.In;
-import org.terasology.engine.utilities.random.FastRandom;
+import org.terasology.engine.world.OnChangedBlock;
+import org.terasology.engine.world.WorldComponent;
 import org.terasology.engine.world.WorldProvider;
+import org.terasology.engine.world.block.BlockComponent;
 import org.terasology.engine.world.block.BlockManager;
+import org.terasology.engine.world.chunks.event.BeforeChunkUnload;
 import org.terasology.gestalt.entitysystem.event.ReceiveEvent;
+import org.terasology.spawning.ai.HierarchicalAIComponent;
 import org.terasology.spawning.ai.SimpleAIComponent;
 
-import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
 
 /**
  * System that handles spawning of stuff
@@ -40,9 +46,9 @@ import java.util.Set;
 public class SpawnerSystem extends BaseComponentSystem implements UpdateSubscriberSystem {
 
     /**
-     * Name for the scheduler to use for periodic spawning
+     * Default limit for Spawnables alive across all Spawners, on top of each Spawner's own maxMobsPerSpawner
      */
-    public static final String PERIODIC_SPAWNING = "PeriodicSpawning";
+    public static final int DEFAULT_GLOBAL_MOB_CAP = 512;
 
     private static final Logger logger = LoggerFactory.getLogger(SpawnerSystem.class);
 
@@ -50,7 +56,7 @@ public class SpawnerSystem extends BaseComponentSystem implements UpdateSubscrib
     private EntityManager entityManager;
 
     @In
-    private PrefabManager prefabManager;
+    private SpawnablePrefabCache spawnablePrefabCache;
 
     @In
     private BlockManager blockMan;
@@ -59,229 +65,666 @@ public class SpawnerSystem extends BaseComponentSystem implements UpdateSubscrib
     private WorldProvider worldProvider;
 
     @In
-    private DelayManager scheduler;
+    private Time time;
 
-    private final FastRandom random = new FastRandom();
+    @In
+    private SpawningMetrics metrics;
+
+    @In
+    private SpawnDiagnostics diagnostics;
+
+    @In
+    private SpawnablePool spawnablePool;
+
+    @In
+    private ProximityIndex proximityIndex;
 
-    private long tick;
-    private long classLastTick;
+    @In
+    private SpawnRecorder recorder;
 
     /**
-     * Cache containing Spawnable prefabs mapped to their spawnable "tags" - each tag may reference multiple prefabs and
-     * each prefab may have multiple tags
+     * Each Spawner plans from its own stream, keyed by its id and the time of the attempt, and picks prefabs from
+     * another, so its spawns don't depend on what other Spawners did before it
      */
-    private SetMultimap<String, Prefab> typeLists = HashMultimap.create();
+    private final RandomStream random = new RandomStream();
+    private final RandomStream pickRandom = new RandomStream();
+    private long planSeed;
+    private long pickSeed;
+
+    private final SpawnRecorder.Replayer replayer = this::spawnPrefab;
+    /** Whether a replay was running as of the last update, the schedule is re-based once it ends */
+    private boolean replaying;
+
+    /** Spawns planned during the current pass, kept around so its buffers can be reused */
+    private final SpawnBatch batch = new SpawnBatch();
+
+    private SpawnColumnScanner columnScanner;
+
+    /** Known open spawn spots around each ranged Spawner */
+    private final SpawnAreaCache spawnAreas = new SpawnAreaCache();
+
+    private final Vector3f originPos = new Vector3f();
+    private final Vector3f trackedPos = new Vector3f();
+
+    /** Spawners ordered by when they are next due, so each update only touches Spawners that have work to do */
+    private final SpawnerSchedule schedule = new SpawnerSchedule();
+
+    /** Chunk of every tracked Spawner, they're dropped along with their chunk */
+    private final SpawnerChunkIndex spawnerChunks = new SpawnerChunkIndex();
+
+    /** Spawners with an activation radius, only scheduled while awake */
+    private final SpawnerActivation activation = new SpawnerActivation();
+
+    private final SpawnerActivation.Listener activationListener = new SpawnerActivation.Listener() {
+        @Override
+        public void onWake(EntityRef spawner) {
+            SpawnerComponent spawnerComp = spawner.getComponent(SpawnerComponent.class);
+            if (spawnerComp != null) {
+                schedule.schedule(spawner, resumeAt(spawnerComp, time.getGameTimeInMs()));
+            }
+        }
+
+        @Override
+        public void onSleep(EntityRef spawner) {
+            schedule.unschedule(spawner);
+        }
+    };
+
+    /** What each tracked Spawner was scheduled with, so changes to anything else don't reschedule it */
+    private final Map<Long, TrackedSettings> trackedSettings = new HashMap<>();
+
+    /** Each Spawner's types flattened into a single weighted table, keyed by Spawner id and built on first use */
+    private final Map<Long, SpawnTable> spawnTables = new HashMap<>();
+
+    /** Live Spawnables per Spawner, so caps can be checked without counting entities */
+    private final SpawnPopulationIndex population = new SpawnPopulationIndex();
+
+    private int globalMobCap = DEFAULT_GLOBAL_MOB_CAP;
+
+    /** Spawnables planned in the current pass, they only count towards the population once created */
+    private int plannedTotal;
+
+    /**
+     * Has the {@link SpawnablePrefabCache} re-check loaded prefabs for Spawnables. Only actual changes are applied and
+     * Spawners pick them up on their next spawn, so this is safe to call whenever available spawnable prefabs change.
+     */
+    public void cacheTypes() {
+        spawnablePrefabCache.refresh();
+    }
 
     @Override
     public void initialise() {
-        cacheTypes();
+        columnScanner = new SpawnColumnScanner(worldProvider);
+        planSeed = RandomStream.seedOf(worldProvider.getSeed(), "spawner plan");
+        pickSeed = RandomStream.seedOf(worldProvider.getSeed(), "spawner pick");
     }
 
     /**
-     * Looks through all loaded prefabs and determines which are spawnable, then stores them in a local SetMultimap This
-     * method should be called (or adders/removers?) whenever available spawnable prefabs change, if ever
+     * Gets the weighted table of prefabs the given Spawner may spawn, building it if needed.
+     * Each of the Spawner's types is equally likely and within a type each prefab is as likely as its probability says,
+     * types that match no prefab are ignored.
+     *
+     * @param spawner the spawner entity
+     * @param spawnerComp the spawner's SpawnerComponent
+     * @return the Spawner's table, empty if none of its types match a spawnable prefab
      */
-    public void cacheTypes() {
-        Collection<Prefab> spawnablePrefabs = prefabManager.listPrefabs(SpawnableComponent.class);
-        logger.info("Grabbed all Spawnable entities - got: {}", spawnablePrefabs);
-        for (Prefab prefab : spawnablePrefabs) {
-            logger.info("Prepping a Spawnable prefab: {}", prefab);
-            SpawnableComponent spawnableComponent = prefab.getComponent(SpawnableComponent.class);
-
-            // Support multiple tags per prefab ("Goblin", "Spearman", "Goblin Spearman", "QuestMob123")
-            for (String tag : spawnableComponent.tags) {
-                logger.info("Adding tag: {} with prefab {}", tag, prefab);
-                typeLists.put(tag, prefab);
+    private AliasTable<Prefab> getSpawnTable(EntityRef spawner, SpawnerComponent spawnerComp) {
+        SpawnablePrefabCache.Snapshot registry = spawnablePrefabCache.getSnapshot();
+        SpawnTable cached = spawnTables.get(spawner.getId());
+        if (cached != null && cached.registryVersion == registry.getVersion()
+                && cached.types.equals(spawnerComp.types)) {
+            return cached.table;
+        }
+
+        Map<Prefab, Double> weights = new LinkedHashMap<>();
+        for (String type : spawnerComp.types) {
+            AliasTable<Prefab> tagTable = registry.getTable(type);
+            for (int i = 0; i < tagTable.size(); i++) {
+                weights.merge(tagTable.get(i), tagTable.share(i), Double::sum);
             }
         }
+        List<Prefab> prefabs = Lists.newArrayList(weights.keySet());
+        double[] prefabWeights = new double[prefabs.size()];
+        for (int i = 0; i < prefabWeights.length; i++) {
+            prefabWeights[i] = weights.get(prefabs.get(i));
+        }
 
-        logger.info("Full typeLists: {}", typeLists);
+        SpawnTable built = new SpawnTable(registry.getVersion(), Lists.newArrayList(spawnerComp.types),
+                AliasTable.of(prefabs, prefabWeights));
+        spawnTables.put(spawner.getId(), built);
+        return built.table;
     }
 
     @Override
     public void shutdown() {
+        population.clear();
+        schedule.clear();
+        activation.clear();
+        spawnerChunks.clear();
+        trackedSettings.clear();
+        spawnTables.clear();
+        spawnAreas.clear();
+        replaying = false;
+    }
+
+    /**
+     * @return the most Spawnables all Spawners together may have alive at once
+     */
+    public int getGlobalMobCap() {
+        return globalMobCap;
+    }
+
+    /**
+     * @param globalMobCap the most Spawnables all Spawners together may have alive at once
+     */
+    public void setGlobalMobCap(int globalMobCap) {
+        this.globalMobCap = globalMobCap;
+    }
+
+    /**
+     * @param spawner the spawner entity to check
+     * @return how many Spawnables made by the given Spawner are currently alive
+     */
+    public int getPopulation(EntityRef spawner) {
+        return population.count(spawner.getId());
+    }
+
+    /**
+     * Start counting a Spawnable against its Spawner once it is active - covers fresh spawns as well as ones loaded
+     * back in with their chunk.
+     *
+     * @param event the OnActivatedComponent event to react to.
+     * @param spawnable the spawnable entity being activated.
+     * @param spawnableComponent the spawnable's SpawnableComponent, holding its parent Spawner.
+     */
+    @ReceiveEvent(components = SpawnableComponent.class)
+    public void onSpawnableActivated(OnActivatedComponent event, EntityRef spawnable,
+                                     SpawnableComponent spawnableComponent) {
+        population.put(spawnable.getId(), spawnableComponent.parent.getId());
+    }
+
+    /**
+     * Keep the count in step if a Spawnable is assigned to a (different) Spawner after it was created.
+     *
+     * @param event the OnChangedComponent event to react to.
+     * @param spawnable the spawnable entity being modified.
+     * @param spawnableComponent the spawnable's SpawnableComponent, holding its parent Spawner.
+     */
+    @ReceiveEvent(components = SpawnableComponent.class)
+    public void onSpawnableChanged(OnChangedComponent event, EntityRef spawnable,
+                                   SpawnableComponent spawnableComponent) {
+        population.put(spawnable.getId(), spawnableComponent.parent.getId());
+    }
+
+    /**
+     * Stop counting a Spawnable once it is destroyed or unloaded.
+     *
+     * @param event the BeforeDeactivateComponent event to react to.
+     * @param spawnable the spawnable entity being deactivated.
+     */
+    @ReceiveEvent(components = SpawnableComponent.class)
+    public void onSpawnableDeactivated(BeforeDeactivateComponent event, EntityRef spawnable) {
+        population.remove(spawnable.getId());
     }
 
     /**
-     * On entity creation or attachment of SpawnerComponent to an entity schedule events to spawn things periodically.
+     * Once a Spawner becomes active (created, attached or loaded in) schedule its next spawning attempt, or have it
+     * wait for a player to come near if it has an activation radius.
      * We also require the Spawner to have a Location to avoid situations like Spawner blocks in an inventory.
      *
-     * @param event the OnAddedComponent event to react to.
-     * @param spawner the spawner entity being created or modified.
+     * @param event the OnActivatedComponent event to react to.
+     * @param spawner the spawner entity being activated.
+     * @param spawnerComponent the spawner's SpawnerComponent.
+     * @param location the spawner's LocationComponent.
      */
     @ReceiveEvent(components = {SpawnerComponent.class, LocationComponent.class})
-    public void onNewSpawner(OnAddedComponent event, EntityRef spawner) {
-        SpawnerComponent spawnerComponent = spawner.getComponent(SpawnerComponent.class);
-        logger.info("In onNewSpawner with SpawnerComponent {}", spawnerComponent);
+    public void onNewSpawner(OnActivatedComponent event, EntityRef spawner, SpawnerComponent spawnerComponent,
+                             LocationComponent location) {
+        logger.debug("In onNewSpawner with SpawnerComponent {}", spawnerComponent);
+        track(spawner, spawnerComponent, location, true);
+    }
 
-        // Schedule a periodic action for the Spawner to spawn stuff. Start after one period of time, then recur.
-        scheduler.addPeriodicAction(spawner, PERIODIC_SPAWNING, spawnerComponent.period, spawnerComponent.period);
+    /**
+     * Pick up changes to a Spawner's period, position or activation radius right away rather than after its current
+     * wait, and its types on the next spawn. Fires for every change to either component, e.g. every move of a creature
+     * acting as Spawner, so only what actually changed is redone.
+     *
+     * @param event the OnChangedComponent event to react to.
+     * @param spawner the spawner entity being modified.
+     * @param spawnerComponent the spawner's SpawnerComponent.
+     * @param location the spawner's LocationComponent.
+     */
+    @ReceiveEvent(components = {SpawnerComponent.class, LocationComponent.class})
+    public void onChangedSpawner(OnChangedComponent event, EntityRef spawner, SpawnerComponent spawnerComponent,
+                                 LocationComponent location) {
+        TrackedSettings tracked = trackedSettings.get(spawner.getId());
+        if (tracked == null || !tracked.schedulesLike(spawnerComponent)) {
+            spawnTables.remove(spawner.getId());
+            track(spawner, spawnerComponent, location, false);
+            return;
+        }
+        if (!tracked.types.equals(spawnerComponent.types)) {
+            spawnTables.remove(spawner.getId());
+            tracked.types = Lists.newArrayList(spawnerComponent.types);
+        }
+        // Moved: only the indexes by position need updating, the schedule stays as it is
+        location.getWorldPosition(trackedPos);
+        if (!trackedPos.equals(tracked.position)) {
+            tracked.position.set(trackedPos);
+            spawnerChunks.put(spawner, trackedPos);
+            if (spawnerComponent.activationRadius > 0) {
+                activation.put(spawner, trackedPos, spawnerComponent.activationRadius);
+            }
+        }
+    }
+
+    /**
+     * Schedules a Spawner that is always awake, or (re)registers one with an activation radius so it is scheduled
+     * only while awake.
+     *
+     * @param resuming whether the Spawner was just loaded or created, it then keeps to its cadence without making up
+     *     for the time it was away
+     */
+    private void track(EntityRef spawner, SpawnerComponent spawnerComponent, LocationComponent location,
+                       boolean resuming) {
+        long now = time.getGameTimeInMs();
+        location.getWorldPosition(trackedPos);
+        trackedSettings.put(spawner.getId(), new TrackedSettings(spawnerComponent, trackedPos));
+        spawnerChunks.put(spawner, trackedPos);
+        if (spawnerComponent.activationRadius <= 0) {
+            activation.remove(spawner);
+            long dueAt = resuming ? resumeAt(spawnerComponent, now) : nextAttemptAt(spawnerComponent, now);
+            schedule.schedule(spawner, dueAt);
+            return;
+        }
+        activation.put(spawner, trackedPos, spawnerComponent.activationRadius);
+        if (activation.isAwake(spawner)) {
+            schedule.schedule(spawner, nextAttemptAt(spawnerComponent, now));
+        } else {
+            schedule.unschedule(spawner);
+        }
     }
 
     /**
-     * On entity destruction or detachment of SpawnerComponent to an entity cancel the schedule for spawning
+     * On entity destruction, unloading or detachment of SpawnerComponent drop the Spawner from the schedule.
      *
-     * @param event the BeforeRemoveComponent event to react to.
-     * @param spawner the spawner entity being destroyed or modified.
+     * @param event the BeforeDeactivateComponent event to react to.
+     * @param spawner the spawner entity being deactivated.
      */
     @ReceiveEvent(components = {SpawnerComponent.class, LocationComponent.class})
-    public void onRemovedSpawner(BeforeRemoveComponent event, EntityRef spawner) {
-        logger.info("In onRemovedSpawner");
-        logger.info("Has the right action? {}", scheduler.hasPeriodicAction(spawner, PERIODIC_SPAWNING));
-        if (scheduler.hasPeriodicAction(spawner, PERIODIC_SPAWNING)) {
-            scheduler.cancelPeriodicAction(spawner, PERIODIC_SPAWNING);
+    public void onRemovedSpawner(BeforeDeactivateComponent event, EntityRef spawner) {
+        logger.debug("In onRemovedSpawner");
+        untrack(spawner);
+    }
+
+    /**
+     * Drops all Spawners of a chunk about to be unloaded in one go, rather than one by one as their entities go.
+     *
+     * @param event the BeforeChunkUnload event to react to.
+     * @param worldEntity the world entity.
+     */
+    @ReceiveEvent(components = WorldComponent.class)
+    public void onChunkUnload(BeforeChunkUnload event, EntityRef worldEntity) {
+        for (EntityRef spawner : spawnerChunks.removeChunk(event.getChunkPos())) {
+            untrack(spawner);
         }
     }
 
+    private void untrack(EntityRef spawner) {
+        schedule.unschedule(spawner);
+        activation.remove(spawner);
+        spawnerChunks.remove(spawner);
+        trackedSettings.remove(spawner.getId());
+        spawnTables.remove(spawner.getId());
+        spawnAreas.remove(spawner.getId());
+    }
+
     /**
-     * A Spawner has "ticked" for its duration between spawning attempts, see if anything should be spawned.
+     * Forget known spawn spots in the column of a block that changed, it'll be scanned again when next picked.
      *
-     * @param event the PeriodicActionTriggeredEvent from the scheduler to react to.
-     * @param spawner the spawner entity about to be processed.
+     * @param event the OnChangedBlock event to react to.
+     * @param blockEntity the entity of the block that changed.
+     */
+    @ReceiveEvent(components = BlockComponent.class)
+    public void onBlockChanged(OnChangedBlock event, EntityRef blockEntity) {
+        Vector3ic position = event.getBlockPosition();
+        spawnAreas.onBlockChanged(position.x(), position.z());
+    }
+
+    /**
+     * @param spawnerComp the Spawner to check
+     * @param now current game time in ms
+     * @return game time in ms at which the Spawner should next attempt to spawn
+     */
+    private static long nextAttemptAt(SpawnerComponent spawnerComp, long now) {
+        // A lastTick from the future (older save, reset clock) shouldn't stall the Spawner
+        long lastTick = Math.min(spawnerComp.lastTick, now);
+        long next = lastTick + Math.max(1, spawnerComp.period);
+        if (spawnerComp.waveSize > 1 && spawnerComp.waveCooldown > 0) {
+            next = Math.max(next, Math.min(spawnerComp.lastWaveAt, now) + spawnerComp.waveCooldown);
+        }
+        return next;
+    }
+
+    /**
+     * @param spawnerComp the Spawner waking up
+     * @param now current game time in ms
+     * @return game time in ms at which the Spawner should next attempt to spawn, keeping to its cadence but skipping
+     *     the attempts it slept through instead of making up for them
+     */
+    private static long resumeAt(SpawnerComponent spawnerComp, long now) {
+        long lastTick = Math.min(spawnerComp.lastTick, now);
+        long period = Math.max(1, spawnerComp.period);
+        long missed = (now - lastTick) / period;
+        return Math.max(lastTick + (missed + 1) * period, nextAttemptAt(spawnerComp, now));
+    }
+
+    /**
+     * Moves every scheduled Spawner on to its next attempt from now, e.g. after a replay during which they waited, so
+     * they keep to their cadence instead of all catching up in the same frame.
      */
-    @ReceiveEvent(components = SpawnerComponent.class)
-    public void onSpawn(PeriodicActionTriggeredEvent event, EntityRef spawner) {
-        logger.info("Spawner {} is ticking", spawner);
+    private void resumeScheduled(long now) {
+        for (EntityRef spawner : schedule.getScheduled()) {
+            SpawnerComponent spawnerComp = spawner.getComponent(SpawnerComponent.class);
+            if (spawnerComp != null) {
+                schedule.schedule(spawner, resumeAt(spawnerComp, now));
+            }
+        }
     }
 
     /**
-     * Responsible for tick update - see if we should attempt to spawn something
+     * Responsible for tick update - attempt to spawn something for every awake Spawner whose period has elapsed
      *
      * @param delta time step since last update
      */
     public void update(float delta) {
-        // Do a time check to see if we should even bother calculating stuff (really only needed every second or so)
-        // Keep a ms counter handy, delta is in seconds
-        tick += delta * 1000;
+        long now = time.getGameTimeInMs();
+        activation.update(now, proximityIndex, activationListener);
+
+        // While replaying, recorded spawns take the place of the Spawners' own, which wait until the replay is over
+        if (recorder.isReplaying()) {
+            recorder.replayDue(now, replayer);
+        }
+        if (recorder.isReplaying()) {
+            replaying = true;
+            return;
+        }
+        if (replaying) {
+            replaying = false;
+            resumeScheduled(now);
+        }
 
-        if (tick - classLastTick < 1000) {
+        EntityRef entity = schedule.pollDue(now);
+        if (entity == null) {
             return;
         }
-        classLastTick = tick;
 
         PerformanceMonitor.startActivity("Spawn creatures");
+        long startNanos = System.nanoTime();
         try {
+            for (; entity != null; entity = schedule.pollDue(now)) {
+                SpawnerComponent spawnerComp = entity.getComponent(SpawnerComponent.class);
+                if (spawnerComp == null) {
+                    continue;
+                }
 
-            // Prep a list of the Spawners we know about and a total count for max mobs
-            int maxMobs = 0;
-            List<EntityRef> spawnerEntities = Lists.newArrayList();
+                spawnerComp.lastTick = now;
+                schedule.schedule(entity, nextAttemptAt(spawnerComp, now));
+                metrics.increment(SpawningMetrics.Counter.SPAWN_ATTEMPTS);
+                random.reset(planSeed, entity.getId(), now);
+                planSpawn(entity, spawnerComp);
+            }
 
-            // Only care about Spawners that are also Locations (ignore one merely contained in an inventory)
-            for (EntityRef spawner : entityManager.getEntitiesWith(SpawnerComponent.class, LocationComponent.class)) {
-                spawnerEntities.add(spawner);
-                maxMobs += spawner.getComponent(SpawnerComponent.class).maxMobsPerSpawner;
+            // Look for open spots for all planned spawns in one go, then create whatever found one as a single batch
+            columnScanner.resolveAll(batch);
+            EntityRef picking = null;
+            for (int i = 0; i < batch.size(); i++) {
+                // A Spawner's planned spawns are next to each other in the batch
+                if (batch.getSpawner(i) != picking) {
+                    picking = batch.getSpawner(i);
+                    pickRandom.reset(pickSeed, picking.getId(), now);
+                }
+                if (batch.isResolved(i)) {
+                    spawn(batch.getSpawner(i), batch.getSpawnerComp(i), batch.getPosition(i));
+                } else {
+                    diagnose(batch.getSpawner(i), SpawnDiagnostics.Outcome.NO_OPEN_POSITION, null,
+                            batch.getPosition(i));
+                    metrics.increment(SpawningMetrics.Counter.SPAWN_FAILED_NO_OPEN_POSITION);
+                }
             }
+        } finally {
+            batch.clear();
+            plannedTotal = 0;
+            metrics.record(SpawningMetrics.Histogram.SPAWN_PASS_MICROS, (System.nanoTime() - startNanos) / 1000);
+            PerformanceMonitor.endActivity();
+        }
+    }
 
-            // Go through entities that are Spawners and check to see if something should spawn
-            logger.info("Count of valid (also have a Location) Spawner entities: {}", spawnerEntities.size());
-            for (EntityRef entity : spawnerEntities) {
-                //logger.info("Found a spawner: {}", entity);
-                SpawnerComponent spawnerComp = entity.getComponent(SpawnerComponent.class);
+    /**
+     * See if the given Spawner should and can spawn something right now, and if so add it - or its whole wave - to the
+     * current batch.
+     *
+     * @param entity the spawner entity whose period has elapsed
+     * @param spawnerComp the spawner's SpawnerComponent
+     */
+    private void planSpawn(EntityRef entity, SpawnerComponent spawnerComp) {
+        int room = globalMobCap - population.total() - plannedTotal;
+        if (room <= 0) {
+            diagnose(entity, SpawnDiagnostics.Outcome.GLOBAL_CAP, null, null);
+            metrics.increment(SpawningMetrics.Counter.SPAWN_FAILED_GLOBAL_CAP);
+            return;
+        }
 
-                if (spawnerComp.lastTick > tick) {
-                    spawnerComp.lastTick = tick;
-                }
+        if (spawnerComp.maxMobsPerSpawner > 0) {
+            int currentMobs = population.count(entity.getId());
+            if (currentMobs >= spawnerComp.maxMobsPerSpawner) {
+                diagnose(entity, SpawnDiagnostics.Outcome.SPAWNER_CAP, null, null);
+                metrics.increment(SpawningMetrics.Counter.SPAWN_FAILED_SPAWNER_CAP);
+                return;
+            }
+            room = Math.min(room, spawnerComp.maxMobsPerSpawner - currentMobs);
+        }
 
-                //logger.info("tick is " + tick + ", lastTick is " + spawnerComp.lastTick);
-                if (tick - spawnerComp.lastTick < spawnerComp.period) {
-                    return;
-                }
+        int spawnTypes = spawnerComp.types.size();
+        if (spawnTypes == 0) {
+            diagnose(entity, SpawnDiagnostics.Outcome.UNKNOWN_TYPE, null, null);
+            metrics.increment(SpawningMetrics.Counter.SPAWN_FAILED_UNKNOWN_TYPE);
+            return;
+        }
 
-                //logger.info("Going to do stuff");
-                spawnerComp.lastTick = tick;
+        // Spawn origin
+        entity.getComponent(LocationComponent.class).getWorldPosition(originPos);
+
+        int waveSize = Math.min(Math.max(1, spawnerComp.waveSize), room);
+        int first = batch.size();
+        for (int member = 0; member < waveSize; member++) {
+            if (member > 0 && spawnerComp.waveSpread > 0 && batch.size() > first) {
+                // Scatter the rest of the wave around where its first member goes
+                Vector3f centre = batch.getPosition(first);
+                double radius = SpawnArea.pickRadius(spawnerComp.waveSpread, 0, random.nextDouble());
+                double angle = random.nextDouble() * 2 * Math.PI;
+                batch.add(entity, spawnerComp, true).set(
+                        centre.x + (float) (radius * Math.cos(angle)),
+                        centre.y,
+                        centre.z + (float) (radius * Math.sin(angle)));
+            } else {
+                planPosition(entity, spawnerComp);
+            }
+        }
+        plannedTotal += batch.size() - first;
 
-                if (spawnerComp.maxMobsPerSpawner > 0) {
-                    int currentMobs = entityManager.getCountOfEntitiesWith(SimpleAIComponent.class);
+        if (spawnerComp.waveSize > 1 && batch.size() > first) {
+            spawnerComp.lastWaveAt = time.getGameTimeInMs();
+            schedule.schedule(entity, nextAttemptAt(spawnerComp, spawnerComp.lastWaveAt));
+        }
+    }
 
-                    logger.info("Mob count: {}/{}", currentMobs, maxMobs);
+    /**
+     * Picks where the given Spawner spawns its next Spawnable and adds it to the current batch, unless no spot is
+     * available.
+     *
+     * @param entity the spawner entity, its position is in {@link #originPos}
+     * @param spawnerComp the spawner's SpawnerComponent
+     */
+    private void planPosition(EntityRef entity, SpawnerComponent spawnerComp) {
+        // In case we're doing ranged spawning we might be changing the exact spot to spawn at (otherwise they're the same)
+        if (!spawnerComp.rangedSpawning) {
+            batch.add(entity, spawnerComp, false).set(originPos);
+            return;
+        }
 
-                    if (currentMobs >= maxMobs) {
-                        logger.info("Too many mobs! Returning early");
-                        return;
-                    }
-                }
+        // Pick a random spot in the ring between the minimum distance and the range, leave y (height) unchanged for now
+        SpawnArea area = spawnAreas.getArea(entity.getId(), originPos, spawnerComp);
+        if (area == null) {
+            // Reaches too far to cache, the open spawn position above or below is looked for along with the batch
+            double radius = SpawnArea.pickRadius(spawnerComp.range, spawnerComp.minDistance, random.nextDouble());
+            double angle = random.nextDouble() * 2 * Math.PI;
+            batch.add(entity, spawnerComp, true).set(
+                    originPos.x + (float) (radius * Math.cos(angle)),
+                    originPos.y,
+                    originPos.z + (float) (radius * Math.sin(angle)));
+            return;
+        }
 
-                int spawnTypes = spawnerComp.types.size();
-                if (spawnTypes == 0) {
-                    logger.warn("Spawner has no types, sad - stopping this loop iteration early :-(");
-                    continue;
-                }
+        int column = area.pickColumn(random.nextDouble(), random.nextDouble());
+        int openY = area.getOpenY(column);
+        if (openY == SpawnArea.BLOCKED) {
+            diagnose(entity, SpawnDiagnostics.Outcome.NO_OPEN_POSITION, null, null);
+            metrics.increment(SpawningMetrics.Counter.SPAWN_FAILED_NO_OPEN_POSITION);
+            return;
+        }
 
-                // Spawn origin
-                Vector3f originPos = entity.getComponent(LocationComponent.class).getWorldPosition(new Vector3f());
-
-                // In case we're doing ranged spawning we might be changing the exact spot to spawn at (otherwise they're the same)
-                Vector3f spawnPos = originPos;
-                if (spawnerComp.rangedSpawning) {
-
-                    // Add random range on the x and z planes, leave y (height) unchanged for now
-                    spawnPos = new Vector3f(originPos.x + random.nextFloat() * spawnerComp.range, 
-                                            originPos.y, 
-                                            originPos.z + random.nextFloat() * spawnerComp.range);
-
-                    // If a minimum distance is set make sure we're beyond it
-                    if (spawnerComp.minDistance != 0) {
-                        Vector3f dist = new Vector3f(spawnPos);
-                        dist.sub(originPos);
-
-                        if (spawnerComp.minDistance > dist.lengthSquared()) {
-                            return;
-                        }
-                    }
-
-                    // Look for an open spawn position either above or below the chosen spot.
-                    int offset = 1;
-                    while (offset < 30) {
-                        if (worldProvider.getBlock(new Vector3f(spawnPos.x, spawnPos.y + offset, spawnPos.z)).isPenetrable()) {
-                            break;
-                        } else if (worldProvider.getBlock(new Vector3f(spawnPos.x, spawnPos.y - offset, spawnPos.z)).isPenetrable()) {
-                            offset *= -1;
-                            break;
-                        }
-
-                        offset++;
-                    }
-
-                    if (offset == 30) {
-                        logger.info("Failed to find an open position to spawn at, sad");
-                        return;
-                    } else {
-                        spawnPos = new Vector3f(spawnPos.x, spawnPos.y + offset, spawnPos.z);
-                        logger.info("Found a valid spawn position that can fit the Spawnable! {}", spawnPos);
-                    }
-                }
+        // Known columns are used as is (if still loaded), unknown ones get scanned along with the rest of the batch
+        boolean known = openY != SpawnArea.UNKNOWN;
+        if (known && !worldProvider.isBlockRelevant(area.getX(column), openY, area.getZ(column))) {
+            diagnose(entity, SpawnDiagnostics.Outcome.NOT_LOADED, null, null);
+            metrics.increment(SpawningMetrics.Counter.SPAWN_FAILED_NOT_LOADED);
+            return;
+        }
+        batch.add(entity, spawnerComp, area, column, !known)
+                .set(area.getX(column), known ? openY : area.getOriginY(), area.getZ(column));
+    }
 
-                // Pick random type to spawn from the Spawner's list of types then test the cache for matching prefabs
-                String chosenSpawnerType = spawnerComp.types.get(random.nextInt(spawnerComp.types.size()));
-                Set randomType = typeLists.get(chosenSpawnerType);
-                logger.info("Picked random type {} which returned {} prefabs", chosenSpawnerType, randomType.size());
-                if (randomType.size() == 0) {
-                    logger.warn("Type {} wasn't found, sad :-( Won't spawn anything this time", chosenSpawnerType);
-                    return;
-                }
+    /**
+     * Spawn something from the given Spawner at a position known to be open.
+     *
+     * @param entity the spawner entity
+     * @param spawnerComp the spawner's SpawnerComponent
+     * @param spawnPos where to spawn
+     */
+    private void spawn(EntityRef entity, SpawnerComponent spawnerComp, Vector3f spawnPos) {
+        // Pick a random prefab from the Spawner's weighted table, one lookup covers both the type and the prefab
+        AliasTable<Prefab> spawnTable = getSpawnTable(entity, spawnerComp);
+        if (spawnTable.isEmpty()) {
+            diagnose(entity, SpawnDiagnostics.Outcome.UNKNOWN_TYPE, null, spawnPos);
+            metrics.increment(SpawningMetrics.Counter.SPAWN_FAILED_UNKNOWN_TYPE);
+            return;
+        }
+        spawnPrefab(entity, spawnTable.pick(pickRandom.nextDouble()), spawnPos);
+    }
 
-                // Now actually pick one of the matching prefabs randomly and that's what we'll try to spawn
-                int anotherRandomIndex = random.nextInt(randomType.size());
-                Object[] randomPrefabs = randomType.toArray();
-                Prefab chosenPrefab = (Prefab) randomPrefabs[anotherRandomIndex];
-                logger.info("Picked index {} of types {} which is a {}, to spawn at {}", 
-                            anotherRandomIndex, chosenSpawnerType, chosenPrefab, spawnPos);
+    /**
+     * Spawn the given prefab for the given Spawner, also used to replay recorded spawns.
+     *
+     * @param entity the spawner entity
+     * @param chosenPrefab what to spawn
+     * @param spawnPos where to spawn
+     */
+    private void spawnPrefab(EntityRef entity, Prefab chosenPrefab, Vector3fc spawnPos) {
+        recorder.record(time.getGameTimeInMs(), entity, chosenPrefab, spawnPos);
+
+        // Reuse a parked Spawnable if there is one, it is set up just like a new one
+        EntityRef reused = spawnablePool.obtain(chosenPrefab, spawnPos, entity);
+        if (reused.exists()) {
+            addDefaultAI(reused);
+            metrics.increment(SpawningMetrics.Counter.SPAWN_SUCCESSES);
+            diagnose(entity, SpawnDiagnostics.Outcome.SPAWNED, chosenPrefab, spawnPos);
+            return;
+        }
 
-                // Finally create the Spawnable. Assign parentage so we can tie Spawnables to their Spawner if needed
-                EntityRef newSpawnableRef = entityManager.create(chosenPrefab, spawnPos);
+        // Finally create the Spawnable with everything it needs in place, so it is only activated once
+        EntityBuilder builder = entityManager.newBuilder(chosenPrefab);
+        LocationComponent location = builder.getComponent(LocationComponent.class);
+        if (location != null) {
+            location.setWorldPosition(spawnPos);
+        }
 
-                logger.info("Spawning a prefab with a SKELETAL mesh: {}", chosenPrefab);
+        // Assign parentage so we can tie Spawnables to their Spawner if needed
+        SpawnableComponent spawnable = builder.getComponent(SpawnableComponent.class);
+        if (spawnable == null) {
+            spawnable = builder.addComponent(new SpawnableComponent());
+        }
+        spawnable.parent = entity;
 
-                // Temp hack - make portal spawned fancy mobs bounce around like idiots too just so they do something
-                SimpleAIComponent simpleAIComponent = new SimpleAIComponent();
-                newSpawnableRef.addComponent(simpleAIComponent);
+        addDefaultAI(builder);
+        builder.build();
 
-                SpawnableComponent newSpawnable = newSpawnableRef.getComponent(SpawnableComponent.class);
-                newSpawnable.parent = entity;
-            }
+        metrics.increment(SpawningMetrics.Counter.SPAWN_SUCCESSES);
+        diagnose(entity, SpawnDiagnostics.Outcome.SPAWNED, chosenPrefab, spawnPos);
+    }
 
-        } finally {
-            PerformanceMonitor.endActivity();
+    /**
+     * Temp hack - make portal spawned fancy mobs bounce around like idiots too just so they do something
+     *
+     * @param spawnable a new Spawnable being built, or a reused one that only got its prefab's components back
+     */
+    private static void addDefaultAI(MutableComponentContainer spawnable) {
+        if (!spawnable.hasComponent(SimpleAIComponent.class) && !spawnable.hasComponent(HierarchicalAIComponent.class)) {
+            spawnable.addComponent(new SimpleAIComponent());
+        }
+    }
+
+    /**
+     * Hands a spawn attempt's outcome to the diagnostics, only costs a check while they're off.
+     */
+    private void diagnose(EntityRef spawner, SpawnDiagnostics.Outcome outcome, Prefab prefab, Vector3fc position) {
+        if (diagnostics.isEnabled()) {
+            diagnostics.record(time.getGameTimeInMs(), spawner, outcome, prefab, position,
+                    population.count(spawner.getId()));
+        }
+    }
+
+    /**
+     * The settings a Spawner was last tracked with
+     */
+    private static final class TrackedSettings {
+        private final int period;
+        private final int waveSize;
+        private final int waveCooldown;
+        private final int activationRadius;
+        private List<String> types;
+        private final Vector3f position;
+
+        private TrackedSettings(SpawnerComponent spawnerComp, Vector3fc position) {
+            this.period = spawnerComp.period;
+            this.waveSize = spawnerComp.waveSize;
+            this.waveCooldown = spawnerComp.waveCooldown;
+            this.activationRadius = spawnerComp.activationRadius;
+            this.types = Lists.newArrayList(spawnerComp.types);
+            this.position = new Vector3f(position);
+        }
+
+        /**
+         * @return whether the Spawner would be scheduled the same with the given settings
+         */
+        private boolean schedulesLike(SpawnerComponent spawnerComp) {
+            return period == spawnerComp.period && waveSize == spawnerComp.waveSize
+                    && waveCooldown == spawnerComp.waveCooldown && activationRadius == spawnerComp.activationRadius;
+        }
+    }
+
+    /**
+     * A Spawner's flattened table along with what it was built from, so edits to the types or registry are noticed
+     */
+    private static final class SpawnTable {
+        private final long registryVersion;
+        private final List<String> types;
+        private final AliasTable<Prefab> table;
+
+        private SpawnTable(long registryVersion, List<String> types, AliasTable<Prefab> table) {
+            this.registryVersion = registryVersion;
+            this.types = types;
+            this.table = table;
         }
     }
 }
@@ -0,0 +1,181 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.spawning;
+
+import com.google.common.collect.ImmutableMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.terasology.engine.core.Time;
+import org.terasology.engine.entitySystem.systems.BaseComponentSystem;
+import org.terasology.engine.entitySystem.systems.RegisterMode;
+import org.terasology.engine.entitySystem.systems.RegisterSystem;
+import org.terasology.engine.entitySystem.systems.UpdateSubscriberSystem;
+import org.terasology.engine.logic.console.commandSystem.annotations.Command;
+import org.terasology.engine.logic.console.commandSystem.annotations.CommandParam;
+import org.terasology.engine.registry.In;
+import org.terasology.engine.registry.Share;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Counters and histograms for spawning and AI updates, readable through the console and optionally logged as a
+ * periodic snapshot. Only meant to be fed from the main thread.
+ */
+@RegisterSystem(RegisterMode.AUTHORITY)
+@Share(SpawningMetrics.class)
+public class SpawningMetrics extends BaseComponentSystem implements UpdateSubscriberSystem {
+
+    /**
+     * Things that are counted
+     */
+    public enum Counter {
+        /** A Spawner's period elapsed and it tried to spawn something */
+        SPAWN_ATTEMPTS,
+        /** A Spawnable was created */
+        SPAWN_SUCCESSES,
+        /** No open position was found around the Spawner */
+        SPAWN_FAILED_NO_OPEN_POSITION,
+        /** None of the Spawner's types matched a spawnable prefab, or it has no types */
+        SPAWN_FAILED_UNKNOWN_TYPE,
+        /** The global mob cap was reached */
+        SPAWN_FAILED_GLOBAL_CAP,
+        /** The Spawner's own mob cap was reached */
+        SPAWN_FAILED_SPAWNER_CAP,
+        /** The chosen spot isn't in a loaded chunk */
+        SPAWN_FAILED_NOT_LOADED,
+        /** A despawned Spawnable was parked for reuse */
+        POOL_PARKED,
+        /** A spawn reused a parked Spawnable */
+        POOL_REUSED,
+        /** A despawned Spawnable was destroyed since its prefab's pool was full */
+        POOL_OVERFLOWS,
+        /** A Spawnable or AI was despawned for being far from every player */
+        DESPAWNS
+    }
+
+    /**
+     * Things whose distribution is tracked, each recorded once per frame it happened in
+     */
+    public enum Histogram {
+        SPAWN_PASS_MICROS,
+        SIMPLE_AI_UPDATE_MICROS,
+        SIMPLE_AI_PROCESSED,
+        SIMPLE_AI_SAVES,
+        HIERARCHICAL_AI_UPDATE_MICROS,
+        HIERARCHICAL_AI_PROCESSED,
+        HIERARCHICAL_AI_SAVES
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(SpawningMetrics.class);
+
+    @In
+    private Time time;
+
+    private final long[] counters = new long[Counter.values().length];
+    private final MetricHistogram[] histograms = new MetricHistogram[Histogram.values().length];
+
+    /** How often to log a snapshot in ms, 0 to not log at all */
+    private long snapshotIntervalMs;
+    private long nextSnapshotAt;
+
+    public SpawningMetrics() {
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new MetricHistogram();
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        reset();
+    }
+
+    @Override
+    public void update(float delta) {
+        if (snapshotIntervalMs <= 0) {
+            return;
+        }
+        long now = time.getGameTimeInMs();
+        if (now >= nextSnapshotAt) {
+            nextSnapshotAt = now + snapshotIntervalMs;
+            logger.info("Spawning metrics: {}", snapshot());
+        }
+    }
+
+    public void increment(Counter counter) {
+        counters[counter.ordinal()]++;
+    }
+
+    public long get(Counter counter) {
+        return counters[counter.ordinal()];
+    }
+
+    public void record(Histogram histogram, long value) {
+        histograms[histogram.ordinal()].record(value);
+    }
+
+    /**
+     * Clears all counters and histograms.
+     */
+    public void reset() {
+        Arrays.fill(counters, 0);
+        for (MetricHistogram histogram : histograms) {
+            histogram.clear();
+        }
+    }
+
+    /**
+     * @param intervalMs how often to log a snapshot in game time ms, 0 or less to stop
+     */
+    public void setSnapshotInterval(long intervalMs) {
+        this.snapshotIntervalMs = Math.max(0, intervalMs);
+        this.nextSnapshotAt = 0;
+    }
+
+    /**
+     * @return every counter by name, and count, mean, p50, p99 and max of every histogram as "name.statistic"
+     */
+    public Map<String, Number> snapshot() {
+        ImmutableMap.Builder<String, Number> builder = ImmutableMap.builder();
+        for (Counter counter : Counter.values()) {
+            builder.put(counter.name(), get(counter));
+        }
+        for (Histogram histogram : Histogram.values()) {
+            MetricHistogram values = histograms[histogram.ordinal()];
+            builder.put(histogram.name() + ".count", values.getCount());
+            builder.put(histogram.name() + ".mean", values.getMean());
+            builder.put(histogram.name() + ".p50", values.getPercentile(0.5));
+            builder.put(histogram.name() + ".p99", values.getPercentile(0.99));
+            builder.put(histogram.name() + ".max", values.getMax());
+        }
+        return builder.build();
+    }
+
+    @Command(runOnServer = true, shortDescription = "Show spawning and AI metrics")
+    public String spawningMetrics() {
+        StringBuilder report = new StringBuilder();
+        for (Counter counter : Counter.values()) {
+            report.append(counter.name()).append(": ").append(get(counter)).append('\n');
+        }
+        for (Histogram histogram : Histogram.values()) {
+            MetricHistogram values = histograms[histogram.ordinal()];
+            report.append(String.format(Locale.ROOT, "%s: count %d, mean %.1f, p50 %d, p99 %d, max %d%n",
+                    histogram.name(), values.getCount(), values.getMean(), values.getPercentile(0.5),
+                    values.getPercentile(0.99), values.getMax()));
+        }
+        return report.toString();
+    }
+
+    @Command(runOnServer = true, shortDescription = "Reset spawning and AI metrics")
+    public String resetSpawningMetrics() {
+        reset();
+        return "Spawning metrics reset";
+    }
+
+    @Command(runOnServer = true, shortDescription = "Log spawning and AI metrics every so many seconds, 0 to stop")
+    public String logSpawningMetrics(@CommandParam("seconds") int seconds) {
+        setSnapshotInterval(seconds * 1000L);
+        return seconds > 0 ? "Logging spawning metrics every " + seconds + "s" : "Stopped logging spawning metrics";
+    }
+}
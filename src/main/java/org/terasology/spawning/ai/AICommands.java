@@ -8,6 +8,7 @@ import org.terasology.engine.entitySystem.entity.EntityRef;
 import org.terasology.engine.entitySystem.systems.BaseComponentSystem;
 import org.terasology.engine.entitySystem.systems.RegisterSystem;
 import org.terasology.engine.logic.console.commandSystem.annotations.Command;
+import org.terasology.engine.logic.console.commandSystem.annotations.CommandParam;
 import org.terasology.engine.registry.In;
 
 /**
@@ -18,6 +19,12 @@ public class AICommands extends BaseComponentSystem {
     @In
     private EntityManager entityManager;
 
+    @In
+    private SimpleAISystem simpleAISystem;
+
+    @In
+    private HierarchicalAISystem hierarchicalAISystem;
+
     /**
      * Counts all AIs in the world
      * @return String string containing number of simple AIs and hierarchical AIs
@@ -48,4 +55,47 @@ public class AICommands extends BaseComponentSystem {
         }
         return "Simple AIs (" + simpleAI + ") Destroyed, Hierarchical AIs (" + hierarchicalAI + ") Destroyed ";
     }
+
+    /**
+     * Limits how many AIs each AI system updates per frame, the rest wait for later frames
+     * @param maxPerFrame the most AIs each system updates in one frame
+     * @param budgetMicros the most time in microseconds each system spends on AIs in one frame
+     * @return String string confirming the new budget
+     */
+    @Command(runOnServer = true, shortDescription = "Limit how many AIs are updated per frame")
+    public String setAIBudget(@CommandParam("maxPerFrame") int maxPerFrame,
+                              @CommandParam("budgetMicros") int budgetMicros) {
+        simpleAISystem.setUpdateBudget(maxPerFrame, budgetMicros);
+        hierarchicalAISystem.setUpdateBudget(maxPerFrame, budgetMicros);
+        return "AI systems now update at most " + maxPerFrame + " AIs in " + budgetMicros + " microseconds per frame";
+    }
+
+    /**
+     * Sets how often simple AIs are updated depending on how far the nearest player is, hierarchical AIs have their
+     * own settings in HierarchicalAIComponent
+     * @param nearDistance simple AIs within this distance of a player are updated every frame
+     * @param farDistance simple AIs further than this from any player are frozen
+     * @param midInterval time in ms between updates for simple AIs in between
+     * @return String string confirming the new settings
+     */
+    @Command(runOnServer = true, shortDescription = "Set distance based update rates of simple AIs")
+    public String setSimpleAILevelOfDetail(@CommandParam("nearDistance") int nearDistance,
+                                           @CommandParam("farDistance") int farDistance,
+                                           @CommandParam("midInterval") int midInterval) {
+        simpleAISystem.setLevelOfDetail(nearDistance, farDistance, midInterval);
+        return "Simple AIs now update every frame within " + nearDistance + ", every " + midInterval
+                + "ms within " + farDistance + " and not at all beyond that";
+    }
+
+    /**
+     * Sets how often hierarchical AIs write their state back to their components, in between it is only kept in the
+     * hierarchical AI system
+     * @param intervalMs game time in ms between write backs, 0 to write back every frame
+     * @return String string confirming the new interval
+     */
+    @Command(runOnServer = true, shortDescription = "Set how often hierarchical AI state is written to components")
+    public String setHierarchicalAISyncInterval(@CommandParam("intervalMs") int intervalMs) {
+        hierarchicalAISystem.setSyncInterval(intervalMs);
+        return "Hierarchical AIs now write their state back every " + Math.max(0, intervalMs) + "ms";
+    }
 }
@@ -0,0 +1,43 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.spawning.ai;
+
+/**
+ * Distance based level of detail for AIs: ones near a player are updated every frame, ones further out at a reduced
+ * rate and ones further still are frozen, only checking now and then whether a player came closer.
+ */
+final class AILevelOfDetail {
+
+    /** How often a frozen AI checks whether a player came within range again */
+    static final long FROZEN_RECHECK_MS = 1000;
+
+    private AILevelOfDetail() {
+    }
+
+    /**
+     * @param distance distance to the nearest player
+     * @param farDistance distance beyond which the AI is frozen
+     * @return true if the AI shouldn't do anything at this distance
+     */
+    static boolean isFrozen(float distance, int farDistance) {
+        return distance > farDistance;
+    }
+
+    /**
+     * @param now current game time in ms
+     * @param distance distance to the nearest player
+     * @param nearDistance distance within which the AI is updated every frame
+     * @param farDistance distance beyond which the AI is frozen
+     * @param midInterval time in ms between updates for AIs in between
+     * @return game time in ms at which the AI should next be updated
+     */
+    static long nextUpdateAt(long now, float distance, int nearDistance, int farDistance, int midInterval) {
+        if (distance <= nearDistance) {
+            return now;
+        }
+        if (distance <= farDistance) {
+            return now + midInterval;
+        }
+        return now + FROZEN_RECHECK_MS;
+    }
+}
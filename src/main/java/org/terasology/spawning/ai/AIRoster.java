@@ -0,0 +1,321 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.spawning.ai;
+
+import org.terasology.engine.entitySystem.entity.EntityRef;
+
+import java.util.Arrays;
+
+/**
+ * Dense list of the AI entities a system drives. Each AI is either awake, waiting in a queue to be processed, or asleep
+ * in a timer wheel until the time it asked to be processed again (e.g. later when far from players), or until something
+ * wakes it early. Each frame only the awake AIs are looked at, a slice at a time: ones that don't fit in one frame's
+ * budget stay at the front of the queue for the next, so with more AIs than fit each still gets its turn, just less
+ * often. The time each AI was last processed is kept so it can make up for the frames it skipped.
+ */
+final class AIRoster {
+
+    /**
+     * Does the actual work for one AI.
+     */
+    interface Visitor {
+        /**
+         * @param entity the AI entity to update
+         * @param slot the AI's current slot
+         * @param elapsedMs game time in ms since this AI was last processed
+         * @return game time in ms before which this AI needn't be processed again
+         */
+        long visit(EntityRef entity, int slot, long elapsedMs);
+    }
+
+    /**
+     * Keeps data stored by slot elsewhere in step with the roster, AIs change slots as others are removed.
+     */
+    interface SlotListener {
+        /**
+         * The AI in slot from moved to slot to, overwriting whatever was there.
+         */
+        void onMoved(int from, int to);
+
+        /**
+         * The slot is no longer used.
+         */
+        void onCleared(int slot);
+    }
+
+    /** Default for the most AIs a system updates in one frame */
+    static final int DEFAULT_MAX_PER_FRAME = 512;
+
+    /** Default for the most real time in microseconds a system spends updating AIs in one frame */
+    static final int DEFAULT_BUDGET_MICROS = 2000;
+
+    /** Check the clock only every so many AIs, reading it is not free either */
+    private static final int CLOCK_CHECK_INTERVAL = 16;
+
+    private final LongIntMap slots = new LongIntMap();
+    private EntityRef[] entities = new EntityRef[64];
+    private long[] lastProcessedAt = new long[64];
+    private long[] nextDueAt = new long[64];
+    private boolean[] awake = new boolean[64];
+    /** Ticket of the AI's entry in the queue, 0 if it has none, so each AI has at most one entry that counts */
+    private long[] queuedTicket = new long[64];
+    private int size;
+    private SlotListener slotListener;
+
+    /**
+     * Ids of the awake AIs in the order they are to be processed, each with the ticket it was queued with. Entries
+     * whose ticket isn't their AI's current one are left over from an earlier stay in the queue and skipped, as are
+     * AIs no longer awake.
+     */
+    private long[] queue = new long[64];
+    private long[] queueTickets = new long[64];
+    private int queueHead;
+    private int queueCount;
+    private long lastTicket;
+
+    private final AITimerWheel sleeping = new AITimerWheel();
+    private final AITimerWheel.Expiry wakeDue = this::wakeDue;
+
+    /** Game time in ms of the last processing */
+    private long now;
+
+    void setSlotListener(SlotListener listener) {
+        this.slotListener = listener;
+    }
+
+    /**
+     * Adds an AI, no-op if already present.
+     *
+     * @param entity the AI entity
+     * @param now current game time in ms, taken as the last time it was processed
+     * @return the AI's slot
+     */
+    int add(EntityRef entity, long now) {
+        int existing = slots.get(entity.getId());
+        if (existing != LongIntMap.MISSING) {
+            return existing;
+        }
+        if (size == entities.length) {
+            entities = Arrays.copyOf(entities, size * 2);
+            lastProcessedAt = Arrays.copyOf(lastProcessedAt, size * 2);
+            nextDueAt = Arrays.copyOf(nextDueAt, size * 2);
+            awake = Arrays.copyOf(awake, size * 2);
+            queuedTicket = Arrays.copyOf(queuedTicket, size * 2);
+        }
+        int slot = size++;
+        entities[slot] = entity;
+        lastProcessedAt[slot] = now;
+        nextDueAt[slot] = now;
+        awake[slot] = false;
+        queuedTicket[slot] = 0;
+        slots.put(entity.getId(), slot);
+        wake(slot);
+        return slot;
+    }
+
+    /**
+     * Removes an AI, safe to call while processing.
+     *
+     * @param entity the AI entity, must not be destroyed yet
+     */
+    void remove(EntityRef entity) {
+        int slot = slots.remove(entity.getId());
+        if (slot == LongIntMap.MISSING) {
+            return;
+        }
+        // Its entries in the queue and wheel are skipped once the id isn't found anymore
+        int last = size - 1;
+        move(last, slot);
+        entities[last] = null;
+        awake[last] = false;
+        if (slotListener != null) {
+            slotListener.onCleared(last);
+        }
+        size--;
+    }
+
+    /**
+     * Changes when an AI is next due, e.g. to let it sleep longer.
+     *
+     * @param entity the AI entity, no-op if not in the roster
+     * @param dueAt game time in ms before which it needn't be processed again
+     */
+    void setNextDueAt(EntityRef entity, long dueAt) {
+        int slot = slots.get(entity.getId());
+        if (slot != LongIntMap.MISSING) {
+            schedule(slot, dueAt);
+        }
+    }
+
+    /**
+     * Queues an AI to be processed as soon as possible, e.g. because something it cares about happened.
+     *
+     * @param entity the AI entity, no-op if not in the roster
+     */
+    void wake(EntityRef entity) {
+        int slot = slots.get(entity.getId());
+        if (slot != LongIntMap.MISSING) {
+            wake(slot);
+        }
+    }
+
+    /**
+     * @return whether the AI is queued to be processed rather than asleep
+     */
+    boolean isAwake(int slot) {
+        return awake[slot];
+    }
+
+    /**
+     * @return the AI's current slot, or -1 if it isn't in the roster
+     */
+    int slotOf(EntityRef entity) {
+        return slots.get(entity.getId());
+    }
+
+    EntityRef get(int slot) {
+        return entities[slot];
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        Arrays.fill(entities, 0, size, null);
+        Arrays.fill(awake, 0, size, false);
+        Arrays.fill(queuedTicket, 0, size, 0);
+        slots.clear();
+        size = 0;
+        queueHead = 0;
+        queueCount = 0;
+        sleeping.clear();
+    }
+
+    /**
+     * Wakes the AIs whose time has come, then processes awake AIs in the order they woke up, until either every AI
+     * that was awake at the start was processed, the count limit is hit or the time budget runs out.
+     *
+     * @param time current game time in ms
+     * @param maxCount the most AIs to process
+     * @param budgetNanos the most real time to spend, checked every few AIs
+     * @param visitor what to do with each AI
+     * @return how many AIs were processed
+     */
+    int process(long time, int maxCount, long budgetNanos, Visitor visitor) {
+        now = time;
+        sleeping.advance(time, wakeDue);
+        long deadline = System.nanoTime() + budgetNanos;
+        // AIs that stay awake go to the back of the queue, they get their next turn in the next frame
+        int toVisit = queueCount;
+        int processed = 0;
+        while (toVisit > 0 && processed < maxCount) {
+            long ticket = queueTickets[queueHead];
+            long id = dequeue();
+            toVisit--;
+            int slot = slots.get(id);
+            if (slot == LongIntMap.MISSING || queuedTicket[slot] != ticket) {
+                continue;
+            }
+            queuedTicket[slot] = 0;
+            if (!awake[slot]) {
+                continue;
+            }
+            awake[slot] = false;
+
+            EntityRef entity = entities[slot];
+            long elapsed = time - lastProcessedAt[slot];
+            lastProcessedAt[slot] = time;
+            processed++;
+
+            long next = visitor.visit(entity, slot, elapsed);
+
+            // The visit may have removed this or other AIs and so moved this one to another slot, or woken it
+            if (slot >= size || entities[slot] != entity) {
+                slot = slots.get(id);
+                if (slot == LongIntMap.MISSING) {
+                    continue;
+                }
+            }
+            if (!awake[slot]) {
+                schedule(slot, next);
+            }
+
+            if (processed % CLOCK_CHECK_INTERVAL == 0 && System.nanoTime() > deadline) {
+                break;
+            }
+        }
+        return processed;
+    }
+
+    private void schedule(int slot, long dueAt) {
+        nextDueAt[slot] = dueAt;
+        if (dueAt <= now) {
+            wake(slot);
+        } else {
+            // A queue entry left over from being awake is skipped, or counts again if woken before it comes up.
+            // An older wheel entry is skipped too.
+            awake[slot] = false;
+            sleeping.schedule(entities[slot].getId(), dueAt);
+        }
+    }
+
+    private void wake(int slot) {
+        if (awake[slot]) {
+            return;
+        }
+        awake[slot] = true;
+        // Still queued from before it was put to sleep, it keeps that place
+        if (queuedTicket[slot] == 0) {
+            queuedTicket[slot] = ++lastTicket;
+            enqueue(entities[slot].getId(), lastTicket);
+        }
+    }
+
+    private void wakeDue(long id, long dueAt) {
+        int slot = slots.get(id);
+        // Only the latest entry of a sleeping AI counts
+        if (slot != LongIntMap.MISSING && !awake[slot] && nextDueAt[slot] == dueAt) {
+            wake(slot);
+        }
+    }
+
+    private void enqueue(long id, long ticket) {
+        if (queueCount == queue.length) {
+            long[] grown = new long[queue.length * 2];
+            long[] grownTickets = new long[queue.length * 2];
+            for (int i = 0; i < queueCount; i++) {
+                grown[i] = queue[(queueHead + i) & (queue.length - 1)];
+                grownTickets[i] = queueTickets[(queueHead + i) & (queue.length - 1)];
+            }
+            queue = grown;
+            queueTickets = grownTickets;
+            queueHead = 0;
+        }
+        queue[(queueHead + queueCount) & (queue.length - 1)] = id;
+        queueTickets[(queueHead + queueCount) & (queue.length - 1)] = ticket;
+        queueCount++;
+    }
+
+    private long dequeue() {
+        long id = queue[queueHead];
+        queueHead = (queueHead + 1) & (queue.length - 1);
+        queueCount--;
+        return id;
+    }
+
+    private void move(int from, int to) {
+        if (from == to) {
+            return;
+        }
+        entities[to] = entities[from];
+        lastProcessedAt[to] = lastProcessedAt[from];
+        nextDueAt[to] = nextDueAt[from];
+        awake[to] = awake[from];
+        queuedTicket[to] = queuedTicket[from];
+        slots.put(entities[to].getId(), to);
+        if (slotListener != null) {
+            slotListener.onMoved(from, to);
+        }
+    }
+}
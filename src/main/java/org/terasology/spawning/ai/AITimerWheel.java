@@ -0,0 +1,98 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.spawning.ai;
+
+import java.util.Arrays;
+
+/**
+ * Hashed timer wheel for AIs waiting on a game time: each entry sits in the bucket of its due tick, so moving time
+ * forward only looks at the buckets of the ticks that passed instead of at every AI. Entries further out than one turn
+ * of the wheel share buckets with nearer ones and are simply kept until their time comes around.
+ * <p>
+ * Entries can't be removed, the owner keeps track of which ones are still current and ignores the rest as they expire.
+ */
+final class AITimerWheel {
+
+    /**
+     * Called for entries whose time has come, must not schedule new entries.
+     */
+    interface Expiry {
+        void expired(long id, long dueAt);
+    }
+
+    /** Game time in ms covered by one bucket */
+    static final int TICK_MS = 32;
+
+    /** Buckets in the wheel, a power of two, so one turn covers a bit over 8 seconds */
+    private static final int BUCKETS = 256;
+    private static final int MASK = BUCKETS - 1;
+
+    private final long[][] ids = new long[BUCKETS][];
+    private final long[][] dueAts = new long[BUCKETS][];
+    private final int[] counts = new int[BUCKETS];
+
+    /** Tick the wheel was last advanced to, its bucket is looked at again on the next advance */
+    private long currentTick;
+
+    AITimerWheel() {
+        for (int i = 0; i < BUCKETS; i++) {
+            ids[i] = new long[8];
+            dueAts[i] = new long[8];
+        }
+    }
+
+    /**
+     * @param id what is due, e.g. an entity id
+     * @param dueAt game time in ms at which it is due, times already passed expire on the next advance
+     */
+    void schedule(long id, long dueAt) {
+        long tick = Math.max(dueAt / TICK_MS, currentTick);
+        int bucket = (int) (tick & MASK);
+        int count = counts[bucket];
+        if (count == ids[bucket].length) {
+            ids[bucket] = Arrays.copyOf(ids[bucket], count * 2);
+            dueAts[bucket] = Arrays.copyOf(dueAts[bucket], count * 2);
+        }
+        ids[bucket][count] = id;
+        dueAts[bucket][count] = dueAt;
+        counts[bucket] = count + 1;
+    }
+
+    /**
+     * Moves the wheel to the given time, expiring every entry due by then.
+     *
+     * @param now current game time in ms
+     * @param expiry called for each expired entry
+     */
+    void advance(long now, Expiry expiry) {
+        long nowTick = now / TICK_MS;
+        // After a long gap each bucket only needs looking at once
+        long fromTick = Math.max(currentTick, nowTick - MASK);
+        for (long tick = fromTick; tick <= nowTick; tick++) {
+            expire((int) (tick & MASK), now, expiry);
+        }
+        currentTick = Math.max(currentTick, nowTick);
+    }
+
+    void clear() {
+        Arrays.fill(counts, 0);
+        currentTick = 0;
+    }
+
+    private void expire(int bucket, long now, Expiry expiry) {
+        long[] bucketIds = ids[bucket];
+        long[] bucketDueAts = dueAts[bucket];
+        int count = counts[bucket];
+        int kept = 0;
+        for (int i = 0; i < count; i++) {
+            if (bucketDueAts[i] <= now) {
+                expiry.expired(bucketIds[i], bucketDueAts[i]);
+            } else {
+                bucketIds[kept] = bucketIds[i];
+                bucketDueAts[kept] = bucketDueAts[i];
+                kept++;
+            }
+        }
+        counts[bucket] = kept;
+    }
+}
@@ -13,9 +13,23 @@ public final class HierarchicalAIComponent implements Component<HierarchicalAICo
 
     public Vector3f movementTarget = new Vector3f();
 
+    //what the AI is doing, and game times in ms at which it is next due to reconsider
+    public HierarchicalAIState state = HierarchicalAIState.WANDER;
+    public long nextTransitionAt;
+    public long nextDirectionChangeAt;
+    public long nextDangerCheckAt;
+
+    /** @deprecated replaced by {@link #state} and the next*At times, no longer updated */
+    @Deprecated
     public long lastChangeOfDirectionAt;
+    /** @deprecated replaced by {@link #state} and the next*At times, no longer updated */
+    @Deprecated
     public long lastChangeOfMovementAt;
+    /** @deprecated replaced by {@link #state} and the next*At times, no longer updated */
+    @Deprecated
     public long lastChangeOfidlingtAt;
+    /** @deprecated replaced by {@link #state} and the next*At times, no longer updated */
+    @Deprecated
     public long lastChangeOfDangerAt;
 
     //how long ai move
@@ -27,7 +41,11 @@ public final class HierarchicalAIComponent implements Component<HierarchicalAICo
     // how often danger direction is checked
     public int dangerUpdateTime = 100;
 
+    //despawn once no player is within despawnDistance blocks, 0 to go by dieDistance instead
     public boolean dieIfPlayerFar = true;
+    public int despawnDistance;
+    /** @deprecated use {@link #despawnDistance}, this is compared against the squared distance (2000 is about 45 blocks) */
+    @Deprecated
     public int dieDistance = 2000;
 
     //define type of AI
@@ -57,9 +75,16 @@ public final class HierarchicalAIComponent implements Component<HierarchicalAICo
     //start attack instead running when wild
     public int panicDistance = 10;
 
-    //doing something
+    /** @deprecated use {@link #state}, kept in line with it: set while fleeing */
+    @Deprecated
     public boolean inDanger;
 
+    //level of detail: updated every frame when a player is within this distance
+    public int lodNearDistance = 32;
+    //updated every lodMidInterval ms up to this distance, frozen further out (only despawning then)
+    public int lodFarDistance = 96;
+    public int lodMidInterval = 250;
+
 
     //TODO remove this when fight system is ready!!!
     public int damage = 50;
@@ -70,6 +95,10 @@ public final class HierarchicalAIComponent implements Component<HierarchicalAICo
         this.updateFrequency = other.updateFrequency;
         this.lastProgressedUpdateAt = other.lastProgressedUpdateAt;
         this.movementTarget = new Vector3f(other.movementTarget);
+        this.state = other.state;
+        this.nextTransitionAt = other.nextTransitionAt;
+        this.nextDirectionChangeAt = other.nextDirectionChangeAt;
+        this.nextDangerCheckAt = other.nextDangerCheckAt;
         this.lastChangeOfDirectionAt = other.lastChangeOfDirectionAt;
         this.lastChangeOfMovementAt = other.lastChangeOfMovementAt;
         this.lastChangeOfidlingtAt = other.lastChangeOfidlingtAt;
@@ -79,6 +108,7 @@ public final class HierarchicalAIComponent implements Component<HierarchicalAICo
         this.idlingUpdateTime = other.idlingUpdateTime;
         this.dangerUpdateTime = other.dangerUpdateTime;
         this.dieIfPlayerFar = other.dieIfPlayerFar;
+        this.despawnDistance = other.despawnDistance;
         this.dieDistance = other.dieDistance;
         this.hunter = other.hunter;
         this.aggressive = other.aggressive;
@@ -94,6 +124,9 @@ public final class HierarchicalAIComponent implements Component<HierarchicalAICo
         this.runDistance = other.runDistance;
         this.panicDistance = other.panicDistance;
         this.inDanger = other.inDanger;
+        this.lodNearDistance = other.lodNearDistance;
+        this.lodFarDistance = other.lodFarDistance;
+        this.lodMidInterval = other.lodMidInterval;
         this.damage = other.damage;
         this.damageFrequency = other.damageFrequency;
     }
@@ -0,0 +1,17 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.spawning.ai;
+
+/**
+ * What a hierarchical AI is currently doing
+ */
+public enum HierarchicalAIState {
+    /** Standing around until its next transition */
+    IDLE,
+    /** Walking towards a random target, changing direction every so often, until its next transition */
+    WANDER,
+    /** Heading for a player, hunters only */
+    HUNT,
+    /** Running away from a player, wild ones only */
+    FLEE
+}
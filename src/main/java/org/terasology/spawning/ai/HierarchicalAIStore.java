@@ -0,0 +1,260 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.spawning.ai;
+
+import org.joml.Vector3fc;
+import org.terasology.engine.entitySystem.entity.EntityRef;
+
+import java.util.Arrays;
+
+/**
+ * Runtime state of every hierarchical AI packed into parallel primitive arrays, indexed by the AI's roster slot, so
+ * updates walk flat arrays instead of looking up and dereferencing components. The AI components stay the persisted
+ * copy: settings are read from them directly, the state kept here is written back to them now and then. State and
+ * target other systems change on a component between write backs are pulled in and win over what the store has.
+ * <p>
+ * Besides the per slot columns the store holds the list of AIs due this update, with what was gathered for them and
+ * what they decided, indexed by their position in that list.
+ */
+final class HierarchicalAIStore implements AIRoster.SlotListener {
+
+    private static final HierarchicalAIState[] STATES = HierarchicalAIState.values();
+
+    // Per slot
+
+    /** Settings, and where the state is written back to */
+    HierarchicalAIComponent[] components = new HierarchicalAIComponent[64];
+    float[] posX = new float[64];
+    float[] posY = new float[64];
+    float[] posZ = new float[64];
+    float[] targetX = new float[64];
+    float[] targetY = new float[64];
+    float[] targetZ = new float[64];
+    byte[] state = new byte[64];
+    long[] lastProgressedUpdateAt = new long[64];
+    long[] nextTransitionAt = new long[64];
+    long[] nextDirectionChangeAt = new long[64];
+    long[] nextDangerCheckAt = new long[64];
+    /** Whether state or target changed since last written back, the timers alone don't need the component saved */
+    boolean[] dirty = new boolean[64];
+    /** State and target as last loaded from or written to the component, to tell when someone else changed them */
+    byte[] writtenState = new byte[64];
+    float[] writtenTargetX = new float[64];
+    float[] writtenTargetY = new float[64];
+    float[] writtenTargetZ = new float[64];
+    /** Whether a player was within sensing range at the last danger check, so only players coming closer wake it */
+    boolean[] sensedPlayer = new boolean[64];
+
+    // Per due AI
+
+    int dueCount;
+    int[] dueSlot = new int[64];
+    EntityRef[] dueEntity = new EntityRef[64];
+    long[] dueElapsed = new long[64];
+    long[] dueNextUpdateAt = new long[64];
+    boolean[] duePlayerFound = new boolean[64];
+    float[] duePlayerX = new float[64];
+    float[] duePlayerY = new float[64];
+    float[] duePlayerZ = new float[64];
+    boolean[] dueMove = new boolean[64];
+    float[] dueDriveX = new float[64];
+    float[] dueDriveY = new float[64];
+    float[] dueDriveZ = new float[64];
+    float[] dueYaw = new float[64];
+
+    /**
+     * Fills a slot from the AI's component and location.
+     */
+    void load(int slot, HierarchicalAIComponent ai, Vector3fc position) {
+        ensureCapacity(slot + 1);
+        components[slot] = ai;
+        setPosition(slot, position);
+        targetX[slot] = ai.movementTarget.x;
+        targetY[slot] = ai.movementTarget.y;
+        targetZ[slot] = ai.movementTarget.z;
+        state[slot] = (byte) ai.state.ordinal();
+        lastProgressedUpdateAt[slot] = ai.lastProgressedUpdateAt;
+        nextTransitionAt[slot] = ai.nextTransitionAt;
+        nextDirectionChangeAt[slot] = ai.nextDirectionChangeAt;
+        nextDangerCheckAt[slot] = ai.nextDangerCheckAt;
+        dirty[slot] = false;
+        sensedPlayer[slot] = false;
+        markWritten(slot);
+    }
+
+    /**
+     * Takes state and target from the slot's component if they were changed there since last loaded or written back,
+     * dropping the store's own changes to them.
+     */
+    void pull(int slot) {
+        HierarchicalAIComponent ai = components[slot];
+        if (ai.state.ordinal() == writtenState[slot] && ai.movementTarget.x == writtenTargetX[slot]
+                && ai.movementTarget.y == writtenTargetY[slot] && ai.movementTarget.z == writtenTargetZ[slot]) {
+            return;
+        }
+        state[slot] = (byte) ai.state.ordinal();
+        targetX[slot] = ai.movementTarget.x;
+        targetY[slot] = ai.movementTarget.y;
+        targetZ[slot] = ai.movementTarget.z;
+        dirty[slot] = false;
+        markWritten(slot);
+    }
+
+    void setPosition(int slot, Vector3fc position) {
+        posX[slot] = position.x();
+        posY[slot] = position.y();
+        posZ[slot] = position.z();
+    }
+
+    HierarchicalAIState getState(int slot) {
+        return STATES[state[slot]];
+    }
+
+    void setState(int slot, HierarchicalAIState newState) {
+        byte ordinal = (byte) newState.ordinal();
+        if (state[slot] != ordinal) {
+            state[slot] = ordinal;
+            dirty[slot] = true;
+        }
+    }
+
+    void setTarget(int slot, float x, float y, float z) {
+        if (targetX[slot] != x || targetY[slot] != y || targetZ[slot] != z) {
+            targetX[slot] = x;
+            targetY[slot] = y;
+            targetZ[slot] = z;
+            dirty[slot] = true;
+        }
+    }
+
+    /**
+     * Writes a slot's state back to its component.
+     *
+     * @return whether anything other systems or clients care about changed, i.e. whether the component needs saving
+     */
+    @SuppressWarnings("deprecation")
+    boolean writeBack(int slot) {
+        HierarchicalAIComponent ai = components[slot];
+        ai.lastProgressedUpdateAt = lastProgressedUpdateAt[slot];
+        ai.nextTransitionAt = nextTransitionAt[slot];
+        ai.nextDirectionChangeAt = nextDirectionChangeAt[slot];
+        ai.nextDangerCheckAt = nextDangerCheckAt[slot];
+        if (!dirty[slot]) {
+            return false;
+        }
+        ai.state = getState(slot);
+        ai.inDanger = ai.state == HierarchicalAIState.FLEE;
+        ai.movementTarget.set(targetX[slot], targetY[slot], targetZ[slot]);
+        dirty[slot] = false;
+        markWritten(slot);
+        return true;
+    }
+
+    private void markWritten(int slot) {
+        writtenState[slot] = state[slot];
+        writtenTargetX[slot] = targetX[slot];
+        writtenTargetY[slot] = targetY[slot];
+        writtenTargetZ[slot] = targetZ[slot];
+    }
+
+    /**
+     * Queues an AI to decide this update.
+     *
+     * @return its position in the due list
+     */
+    int addDue(int slot, EntityRef entity, long elapsedMs, long nextUpdateAt) {
+        if (dueCount == dueSlot.length) {
+            growDue(dueCount * 2);
+        }
+        int i = dueCount++;
+        dueSlot[i] = slot;
+        dueEntity[i] = entity;
+        dueElapsed[i] = elapsedMs;
+        dueNextUpdateAt[i] = nextUpdateAt;
+        duePlayerFound[i] = false;
+        dueMove[i] = false;
+        return i;
+    }
+
+    /**
+     * Empties the due list, dropping the entity references so they aren't kept alive.
+     */
+    void clearDue() {
+        Arrays.fill(dueEntity, 0, dueCount, null);
+        dueCount = 0;
+    }
+
+    void clear() {
+        clearDue();
+        Arrays.fill(components, null);
+    }
+
+    @Override
+    public void onMoved(int from, int to) {
+        components[to] = components[from];
+        posX[to] = posX[from];
+        posY[to] = posY[from];
+        posZ[to] = posZ[from];
+        targetX[to] = targetX[from];
+        targetY[to] = targetY[from];
+        targetZ[to] = targetZ[from];
+        state[to] = state[from];
+        lastProgressedUpdateAt[to] = lastProgressedUpdateAt[from];
+        nextTransitionAt[to] = nextTransitionAt[from];
+        nextDirectionChangeAt[to] = nextDirectionChangeAt[from];
+        nextDangerCheckAt[to] = nextDangerCheckAt[from];
+        dirty[to] = dirty[from];
+        writtenState[to] = writtenState[from];
+        writtenTargetX[to] = writtenTargetX[from];
+        writtenTargetY[to] = writtenTargetY[from];
+        writtenTargetZ[to] = writtenTargetZ[from];
+        sensedPlayer[to] = sensedPlayer[from];
+    }
+
+    @Override
+    public void onCleared(int slot) {
+        components[slot] = null;
+        dirty[slot] = false;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= components.length) {
+            return;
+        }
+        int length = Math.max(capacity, components.length * 2);
+        components = Arrays.copyOf(components, length);
+        posX = Arrays.copyOf(posX, length);
+        posY = Arrays.copyOf(posY, length);
+        posZ = Arrays.copyOf(posZ, length);
+        targetX = Arrays.copyOf(targetX, length);
+        targetY = Arrays.copyOf(targetY, length);
+        targetZ = Arrays.copyOf(targetZ, length);
+        state = Arrays.copyOf(state, length);
+        lastProgressedUpdateAt = Arrays.copyOf(lastProgressedUpdateAt, length);
+        nextTransitionAt = Arrays.copyOf(nextTransitionAt, length);
+        nextDirectionChangeAt = Arrays.copyOf(nextDirectionChangeAt, length);
+        nextDangerCheckAt = Arrays.copyOf(nextDangerCheckAt, length);
+        dirty = Arrays.copyOf(dirty, length);
+        writtenState = Arrays.copyOf(writtenState, length);
+        writtenTargetX = Arrays.copyOf(writtenTargetX, length);
+        writtenTargetY = Arrays.copyOf(writtenTargetY, length);
+        writtenTargetZ = Arrays.copyOf(writtenTargetZ, length);
+        sensedPlayer = Arrays.copyOf(sensedPlayer, length);
+    }
+
+    private void growDue(int length) {
+        dueSlot = Arrays.copyOf(dueSlot, length);
+        dueEntity = Arrays.copyOf(dueEntity, length);
+        dueElapsed = Arrays.copyOf(dueElapsed, length);
+        dueNextUpdateAt = Arrays.copyOf(dueNextUpdateAt, length);
+        duePlayerFound = Arrays.copyOf(duePlayerFound, length);
+        duePlayerX = Arrays.copyOf(duePlayerX, length);
+        duePlayerY = Arrays.copyOf(duePlayerY, length);
+        duePlayerZ = Arrays.copyOf(duePlayerZ, length);
+        dueMove = Arrays.copyOf(dueMove, length);
+        dueDriveX = Arrays.copyOf(dueDriveX, length);
+        dueDriveY = Arrays.copyOf(dueDriveY, length);
+        dueDriveZ = Arrays.copyOf(dueDriveZ, length);
+        dueYaw = Arrays.copyOf(dueYaw, length);
+    }
+}
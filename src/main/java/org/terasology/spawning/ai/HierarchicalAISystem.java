@@ -3,10 +3,11 @@
 package org.terasology.spawning.ai;
 
 import org.joml.Vector3f;
-import org.joml.Vector3fc;
 import org.terasology.engine.core.Time;
-import org.terasology.engine.entitySystem.entity.EntityManager;
 import org.terasology.engine.entitySystem.entity.EntityRef;
+import org.terasology.engine.entitySystem.entity.lifecycleEvents.BeforeDeactivateComponent;
+import org.terasology.engine.entitySystem.entity.lifecycleEvents.OnActivatedComponent;
+import org.terasology.engine.entitySystem.entity.lifecycleEvents.OnChangedComponent;
 import org.terasology.engine.entitySystem.systems.BaseComponentSystem;
 import org.terasology.engine.entitySystem.systems.RegisterMode;
 import org.terasology.engine.entitySystem.systems.RegisterSystem;
@@ -15,227 +16,519 @@ import org.terasology.engine.logic.characters.CharacterMoveInputEvent;
 import org.terasology.engine.logic.characters.CharacterMovementComponent;
 import org.terasology.engine.logic.characters.events.HorizontalCollisionEvent;
 import org.terasology.engine.logic.location.LocationComponent;
-import org.terasology.engine.logic.players.LocalPlayer;
+import org.terasology.engine.logic.players.PlayerCharacterComponent;
 import org.terasology.engine.registry.In;
-import org.terasology.engine.utilities.random.FastRandom;
-import org.terasology.engine.utilities.random.Random;
+import org.terasology.engine.registry.Share;
 import org.terasology.engine.world.WorldProvider;
 import org.terasology.gestalt.entitysystem.event.ReceiveEvent;
+import org.terasology.spawning.ProximityIndex;
+import org.terasology.spawning.RandomStream;
+import org.terasology.spawning.SpawningMetrics;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
 
 /**
  * Hierarchical AI, idea from robotics
  *
  */
 @RegisterSystem(RegisterMode.AUTHORITY)
+@Share(HierarchicalAISystem.class)
 public class HierarchicalAISystem extends BaseComponentSystem implements UpdateSubscriberSystem {
 
+    /** Below this many AIs in a frame deciding on other threads costs more than it saves */
+    private static final int PARALLEL_THRESHOLD = 256;
+
+    /** Default for how often in ms the AIs' state is written back to their components */
+    private static final long DEFAULT_SYNC_INTERVAL_MS = 500;
+
     @In
     private WorldProvider worldProvider;
 
     @In
-    private EntityManager entityManager;
+    private Time time;
 
-    private Random random = new FastRandom();
     @In
-    private Time time;
+    private ProximityIndex proximityIndex;
 
     @In
-    private LocalPlayer localPlayer;
+    private SpawningMetrics metrics;
+
+    /** Every hierarchical AI, the awake ones updated in turn within the per frame budget */
+    private final AIRoster roster = new AIRoster();
+    private final AIRoster.Visitor updateAI = this::updateAI;
+
+    /** Runtime state of every AI, by roster slot */
+    private final HierarchicalAIStore store = new HierarchicalAIStore();
+
+    private int maxAIsPerFrame = AIRoster.DEFAULT_MAX_PER_FRAME;
+    private long budgetNanos = AIRoster.DEFAULT_BUDGET_MICROS * 1000L;
+
+    private long syncIntervalMs = DEFAULT_SYNC_INTERVAL_MS;
+    private long nextSyncAt;
 
-    private boolean idling;
+    /** Farthest any AI senses players from, how far around a moving player to look for AIs to wake */
+    private float maxSenseRange;
+    private final Consumer<EntityRef> senseMovedPlayer = this::senseMovedPlayer;
+
+    private final Vector3f tmp = new Vector3f();
+    private final Vector3f playerPosition = new Vector3f();
+    private final Vector3f movedPlayerPosition = new Vector3f();
+    private final Vector3f drive = new Vector3f();
+    private final RandomStream random = new RandomStream();
+    /** Seed for the AIs' random streams, derived from the world seed */
+    private long randomSeed;
+
+    /** Components saved during the current frame */
+    private int saves;
 
     // TODO add way to recognize if attacked
 
     @Override
-    public void update(float delta) {
-        Vector3f tmp = new Vector3f();
-        for (EntityRef entity : entityManager.getEntitiesWith(
-                HierarchicalAIComponent.class, CharacterMovementComponent.class, LocationComponent.class)) {
-            LocationComponent location = entity.getComponent(LocationComponent.class);
-            location.getWorldPosition(tmp);
-
-            // Skip this AI if not in a loaded chunk
-            if (!worldProvider.isBlockRelevant(tmp)) {
-                continue;
-            }
+    public void initialise() {
+        roster.setSlotListener(store);
+        randomSeed = RandomStream.seedOf(worldProvider.getSeed(), "hierarchical AI");
+    }
 
-            // goto Hierarchical system
-            loop(entity, location, tmp);
+    @Override
+    public void shutdown() {
+        roster.clear();
+        store.clear();
+    }
+
+    /**
+     * Limits how much work the system does per frame, AIs that don't get a turn are picked up in later frames.
+     *
+     * @param maxPerFrame the most AIs to update in one frame
+     * @param budgetMicros the most real time in microseconds to spend updating AIs in one frame
+     */
+    public void setUpdateBudget(int maxPerFrame, int budgetMicros) {
+        this.maxAIsPerFrame = Math.max(1, maxPerFrame);
+        this.budgetNanos = Math.max(1, budgetMicros) * 1000L;
+    }
+
+    /**
+     * Sets how often the AIs' state is written back to their components, which is when other systems and clients
+     * see state and target changes.
+     *
+     * @param intervalMs game time in ms between write backs, 0 to write back every frame
+     */
+    public void setSyncInterval(long intervalMs) {
+        this.syncIntervalMs = Math.max(0, intervalMs);
+        this.nextSyncAt = 0;
+    }
+
+    /**
+     * Writes every AI's state back to its component right away, saving the ones whose state or target changed.
+     */
+    public void syncComponents() {
+        for (int slot = 0; slot < roster.size(); slot++) {
+            if (store.writeBack(slot)) {
+                roster.get(slot).saveComponent(store.components[slot]);
+                saves++;
+            }
         }
     }
 
     /**
-     * main loop of hierarchical system
+     * Wakes an AI that is waiting for its next update, e.g. because it was attacked, and has it look for danger
+     * straight away.
      *
-     * @param entity
-     * @param location
-     * @param worldPos
+     * @param entity the AI entity, no-op if it isn't a hierarchical AI
      */
-    private void loop(EntityRef entity, LocationComponent location, Vector3fc worldPos) {
-        HierarchicalAIComponent ai = entity.getComponent(HierarchicalAIComponent.class);
-        long tempTime = time.getGameTimeInMs();
-        //TODO remove next
-        long lastAttack = 0;
+    public void wake(EntityRef entity) {
+        int slot = roster.slotOf(entity);
+        if (slot >= 0) {
+            store.nextDangerCheckAt[slot] = time.getGameTimeInMs();
+            roster.wake(entity);
+        }
+    }
 
-        // skip update if set to skip them
-        if (tempTime - ai.lastProgressedUpdateAt < ai.updateFrequency) {
-            ai.lastProgressedUpdateAt = time
-                    .getGameTimeInMs();
+    @ReceiveEvent(components = {HierarchicalAIComponent.class, CharacterMovementComponent.class,
+            LocationComponent.class})
+    public void onAIActivated(OnActivatedComponent event, EntityRef entity, HierarchicalAIComponent ai,
+                              LocationComponent location) {
+        int slot = roster.add(entity, time.getGameTimeInMs());
+        store.load(slot, ai, location.getWorldPosition(tmp));
+        if (ai.hunter || ai.wild) {
+            maxSenseRange = Math.max(maxSenseRange, playerSearchRange(ai));
+        }
+    }
+
+    /**
+     * Wakes the hunters and wild AIs a player just came within sensing range of, rather than have them all check
+     * for players every few frames.
+     */
+    @ReceiveEvent(components = {PlayerCharacterComponent.class, LocationComponent.class})
+    public void onPlayerMoved(OnChangedComponent event, EntityRef player, LocationComponent location) {
+        if (maxSenseRange > 0) {
+            proximityIndex.forEachAIWithin(location.getWorldPosition(movedPlayerPosition), maxSenseRange,
+                    senseMovedPlayer);
+        }
+    }
+
+    private void senseMovedPlayer(EntityRef entity) {
+        int slot = roster.slotOf(entity);
+        if (slot < 0 || store.sensedPlayer[slot]) {
             return;
         }
+        HierarchicalAIComponent ai = store.components[slot];
+        if (!ai.hunter && !ai.wild) {
+            return;
+        }
+        float x = movedPlayerPosition.x - store.posX[slot];
+        float y = movedPlayerPosition.y - store.posY[slot];
+        float z = movedPlayerPosition.z - store.posZ[slot];
+        if (x * x + y * y + z * z < Math.max(ai.playerSense, ai.runDistance)) {
+            store.sensedPlayer[slot] = true;
+            wake(entity);
+        }
+    }
 
-        long directionChangeTime = ai.moveUpdateTime;
-        long moveChangeTime = ai.moveUpdateTime;
-        long idleChangeTime = ai.idlingUpdateTime;
-        long dangerChangeTime = ai.dangerUpdateTime;
+    /**
+     * Keeps the stored position current, so updates don't need to look up the location, and takes over state and
+     * target other systems set on the component so the next write back doesn't undo them.
+     */
+    @ReceiveEvent(components = {HierarchicalAIComponent.class, CharacterMovementComponent.class,
+            LocationComponent.class})
+    public void onAIChanged(OnChangedComponent event, EntityRef entity, HierarchicalAIComponent ai,
+                            LocationComponent location) {
+        int slot = roster.slotOf(entity);
+        if (slot >= 0) {
+            store.components[slot] = ai;
+            store.setPosition(slot, location.getWorldPosition(tmp));
+            store.pull(slot);
+        }
+    }
 
-        // get movement
-        Vector3f drive = new Vector3f();
+    @ReceiveEvent(components = {HierarchicalAIComponent.class, CharacterMovementComponent.class,
+            LocationComponent.class})
+    public void onAIDeactivated(BeforeDeactivateComponent event, EntityRef entity) {
+        int slot = roster.slotOf(entity);
+        if (slot >= 0) {
+            // Stored along with the entity, no need to save and notify
+            store.writeBack(slot);
+        }
+        roster.remove(entity);
+    }
 
-        // find player position
-        // TODO: shouldn't use local player, need some way to find nearest
-        if (localPlayer != null) {
-            final Vector3f playerPosition = localPlayer.getPosition(new Vector3f());
-            double distanceToPlayer = worldPos.distanceSquared(playerPosition);
+    @Override
+    public void update(float delta) {
+        long now = time.getGameTimeInMs();
+        long startNanos = System.nanoTime();
+        store.clearDue();
+        saves = 0;
+        int processed = 0;
+        try {
+            // Gather: pick the due AIs and note what they need to decide
+            processed = roster.process(now, maxAIsPerFrame, budgetNanos, updateAI);
+
+            // Decide: no entity system access, so it may run on several threads
+            int count = store.dueCount;
+            if (count >= PARALLEL_THRESHOLD) {
+                ForkJoinPool.commonPool().invoke(new DecideTask(store, now, randomSeed, 0, count));
+            } else {
+                for (int i = 0; i < count; i++) {
+                    decide(store, i, now, randomSeed, random);
+                }
+            }
 
-            ai.inDanger = false;
-            if (ai.dieIfPlayerFar && distanceToPlayer > ai.dieDistance) {
-                entity.destroy();
+            // Apply: back on this thread, in roster order
+            for (int i = 0; i < count; i++) {
+                apply(i, now);
             }
 
-            //update
-            if (tempTime - ai.lastChangeOfDangerAt > dangerChangeTime) {
-                dangerChangeTime = (long) (ai.dangerUpdateTime * random.nextDouble() * ai.hectic);
-                if (ai.hunter) {
-                    if (distanceToPlayer > ai.playerdistance && distanceToPlayer < ai.playerSense) {
-                        // Head to player
-                        if (ai.forgiving != 0) {
-                            playerPosition.add(
-                                    random.nextFloat(-ai.forgiving, ai.forgiving),
-                                    random.nextFloat(-ai.forgiving, ai.forgiving),
-                                    random.nextFloat(-ai.forgiving, ai.forgiving));
-                        }
-                        ai.movementTarget.set(playerPosition);
-                        ai.inDanger = true;
-                        entity.saveComponent(ai);
-
-                        // System.out.print("\nhunting palyer\n");
-                    }
-                }
-                // run opposite direction
-                if (ai.wild) {
-                    if (distanceToPlayer > ai.panicDistance
-                            && distanceToPlayer < ai.runDistance) {
-                        runAway(entity, ai);
-                    }
-                }
-                ai.lastChangeOfDangerAt = time.getGameTimeInMs();
+            if (now >= nextSyncAt) {
+                nextSyncAt = now + syncIntervalMs;
+                syncComponents();
             }
+        } finally {
+            store.clearDue();
+            metrics.record(SpawningMetrics.Histogram.HIERARCHICAL_AI_UPDATE_MICROS,
+                    (System.nanoTime() - startNanos) / 1000);
+            metrics.record(SpawningMetrics.Histogram.HIERARCHICAL_AI_PROCESSED, processed);
+            metrics.record(SpawningMetrics.Histogram.HIERARCHICAL_AI_SAVES, saves);
         }
+    }
 
-        if (!ai.inDanger) {
+    /**
+     * Looks at a single AI and, if it is close enough to a player to move, queues it to decide what to do.
+     *
+     * @param entity the AI entity
+     * @param slot the AI's slot in the roster and store
+     * @param elapsedMs game time in ms since this AI was last updated, its move covers all of it
+     * @return game time in ms at which the AI should next be updated, depending on how far the nearest player is
+     */
+    private long updateAI(EntityRef entity, int slot, long elapsedMs) {
+        long now = time.getGameTimeInMs();
+        tmp.set(store.posX[slot], store.posY[slot], store.posZ[slot]);
 
-            //----------------eat----------
-            // if anything edible is in front
-            if (foodInFront()) {
-                return;
+        // Skip this AI if not in a loaded chunk
+        if (!worldProvider.isBlockRelevant(tmp)) {
+            return now + AILevelOfDetail.FROZEN_RECHECK_MS;
+        }
+
+        // find nearest player position, anyone further than every distance the AI cares about may as well not be there
+        HierarchicalAIComponent ai = store.components[slot];
+        float searchRange = Math.max(ai.lodFarDistance, playerSearchRange(ai));
+        EntityRef player = proximityIndex.findNearestPlayer(tmp, searchRange, playerPosition);
+        float distance = player.exists() ? tmp.distance(playerPosition) : Float.MAX_VALUE;
+
+        long nextUpdateAt = AILevelOfDetail.nextUpdateAt(now, distance, ai.lodNearDistance, ai.lodFarDistance,
+                ai.lodMidInterval);
+        long wakeAt = dormantUntil(store, slot, now);
+        // Too far from anyone to bother moving (DespawnSystem gets rid of it if far enough), or idle for a while
+        if (!AILevelOfDetail.isFrozen(distance, ai.lodFarDistance) && wakeAt <= now) {
+            // goto Hierarchical system
+            int i = store.addDue(slot, entity, elapsedMs, nextUpdateAt);
+            if (player.exists()) {
+                store.duePlayerFound[i] = true;
+                store.duePlayerX[i] = playerPosition.x;
+                store.duePlayerY[i] = playerPosition.y;
+                store.duePlayerZ[i] = playerPosition.z;
             }
+        }
+        return Math.max(nextUpdateAt, wakeAt);
+    }
 
-            //----------------idle----------
-            // Idling part
-            // what AI does when nothing better to do
-            if (idling) {
-                // time to stop idling
-                if (tempTime - ai.lastChangeOfidlingtAt > idleChangeTime) {
-                    idleChangeTime = (long) (ai.idlingUpdateTime * random.nextDouble() * ai.hectic);
-                    idling = false;
-                    // mark idling state changed
-                    ai.lastChangeOfidlingtAt = time.getGameTimeInMs();
-                }
-                entity.saveComponent(location);
-                ai.lastProgressedUpdateAt = time.getGameTimeInMs();
-                return;
+    /**
+     * main loop of hierarchical system, only works on the store, each due AI on its own slot
+     *
+     * @param s the store
+     * @param i the AI's position in the due list
+     * @param now current game time in ms
+     * @param seed seed of the AIs' random streams, each AI draws from its own stream keyed by its id and the time
+     * @param random stream to reset to the AI's own numbers, so the outcome doesn't depend on thread or order
+     */
+    private static void decide(HierarchicalAIStore s, int i, long now, long seed, RandomStream random) {
+        int slot = s.dueSlot[i];
+        HierarchicalAIComponent ai = s.components[slot];
 
-            }
+        // skip update if set to skip them
+        if (now - s.lastProgressedUpdateAt[slot] < ai.updateFrequency) {
+            return;
+        }
+        s.lastProgressedUpdateAt[slot] = now;
+        random.reset(seed, s.dueEntity[i].getId(), now);
 
-            // check if it is time to idle again
-            if (tempTime - ai.lastChangeOfMovementAt > moveChangeTime) {
-                // update time
-                moveChangeTime = (long) (ai.moveUpdateTime * random.nextDouble() * ai.hectic);
-                idling = true;
-                entity.saveComponent(location);
+        if ((ai.hunter || ai.wild) && now >= s.nextDangerCheckAt[slot]) {
+            s.nextDangerCheckAt[slot] = now + randomDuration(random, ai.dangerUpdateTime, ai.hectic);
+            checkDanger(s, i, slot, now, random);
+        }
 
-                // mark start idling
-                ai.lastChangeOfMovementAt = time.getGameTimeInMs();
-                ai.lastProgressedUpdateAt = time.getGameTimeInMs();
-                return;
-            }
+        switch (s.getState(slot)) {
+            case IDLE:
+                if (now < s.nextTransitionAt[slot]) {
+                    return;
+                }
+                startWandering(s, slot, now, random);
+                break;
+            case WANDER:
+                // if anything edible is in front
+                if (foodInFront()) {
+                    return;
+                }
+                if (now >= s.nextTransitionAt[slot]) {
+                    s.setState(slot, HierarchicalAIState.IDLE);
+                    s.nextTransitionAt[slot] = now + randomDuration(random, ai.idlingUpdateTime, ai.hectic);
+                    return;
+                }
+                if (now >= s.nextDirectionChangeAt[slot]) {
+                    randomWalk(s, slot, now, random);
+                }
+                break;
+            default:
+                // Hunting or fleeing, the target was picked by the last danger check
+                break;
+        }
 
-            // Random walk
-            // check if time to change direction
-            if (tempTime - ai.lastChangeOfDirectionAt > directionChangeTime) {
-                directionChangeTime = (long) (ai.moveUpdateTime * random.nextDouble() * ai.straightLined);
-                randomWalk(worldPos, ai);
-                entity.saveComponent(ai);
-                // System.out.print("direction changed\n");
+        float x = s.targetX[slot] - s.posX[slot];
+        float y = s.targetY[slot] - s.posY[slot];
+        float z = s.targetZ[slot] - s.posZ[slot];
+        float length = (float) Math.sqrt(x * x + y * y + z * z);
+        if (length > 0) {
+            x /= length;
+            y /= length;
+            z /= length;
+        }
+        s.dueDriveX[i] = x;
+        s.dueDriveY[i] = y;
+        s.dueDriveZ[i] = z;
+        s.dueYaw[i] = (float) Math.atan2(x, z);
+        s.dueMove[i] = true;
+    }
 
-            }
+    /**
+     * Looks whether a player is close enough to hunt or flee from, and calms down again once there isn't.
+     */
+    private static void checkDanger(HierarchicalAIStore s, int i, int slot, long now, RandomStream random) {
+        HierarchicalAIComponent ai = s.components[slot];
+        double distanceToPlayer = Double.MAX_VALUE;
+        if (s.duePlayerFound[i]) {
+            float x = s.duePlayerX[i] - s.posX[slot];
+            float y = s.duePlayerY[i] - s.posY[slot];
+            float z = s.duePlayerZ[i] - s.posZ[slot];
+            distanceToPlayer = x * x + y * y + z * z;
+        }
+        s.sensedPlayer[slot] = distanceToPlayer < Math.max(ai.playerSense, ai.runDistance);
+
+        // run opposite direction
+        if (ai.wild && distanceToPlayer > ai.panicDistance && distanceToPlayer < ai.runDistance) {
+            // straight away from the player, as far again on the other side of the AI
+            setTargetNear(s, slot, random,
+                    2 * s.posX[slot] - s.duePlayerX[i],
+                    2 * s.posY[slot] - s.duePlayerY[i],
+                    2 * s.posZ[slot] - s.duePlayerZ[i]);
+            s.setState(slot, HierarchicalAIState.FLEE);
+            return;
+        }
+        if (ai.hunter && distanceToPlayer > ai.playerdistance && distanceToPlayer < ai.playerSense) {
+            // Head to player
+            setTargetNear(s, slot, random, s.duePlayerX[i], s.duePlayerY[i], s.duePlayerZ[i]);
+            s.setState(slot, HierarchicalAIState.HUNT);
+            return;
+        }
+        HierarchicalAIState state = s.getState(slot);
+        if (state == HierarchicalAIState.HUNT || state == HierarchicalAIState.FLEE) {
+            startWandering(s, slot, now, random);
+        }
+    }
+
+    /**
+     * Targets the given point, off by up to the AI's forgiving distance in each direction.
+     */
+    private static void setTargetNear(HierarchicalAIStore s, int slot, RandomStream random, float x, float y,
+                                      float z) {
+        float forgiving = s.components[slot].forgiving;
+        if (forgiving != 0) {
+            x += random.nextFloat(-forgiving, forgiving);
+            y += random.nextFloat(-forgiving, forgiving);
+            z += random.nextFloat(-forgiving, forgiving);
         }
+        s.setTarget(slot, x, y, z);
+    }
 
-        Vector3f targetDirection = ai.movementTarget.sub(worldPos, new Vector3f());
-        targetDirection.normalize();
-        drive.set(targetDirection);
+    private static void startWandering(HierarchicalAIStore s, int slot, long now, RandomStream random) {
+        HierarchicalAIComponent ai = s.components[slot];
+        s.setState(slot, HierarchicalAIState.WANDER);
+        s.nextTransitionAt[slot] = now + randomDuration(random, ai.moveUpdateTime, ai.hectic);
+        randomWalk(s, slot, now, random);
+    }
 
-        float yaw = (float) Math.atan2(targetDirection.x, targetDirection.z);
-        entity.send(new CharacterMoveInputEvent(0, 0, yaw, drive, false, false, false, time.getGameDeltaInMs()));
-        entity.saveComponent(location);
+    /**
+     * @return a random time in ms between 0 and base * factor
+     */
+    private static long randomDuration(RandomStream random, int base, int factor) {
+        return (long) (base * random.nextDouble() * factor);
+    }
 
-        ai.lastProgressedUpdateAt = time.getGameTimeInMs();
+    /**
+     * @param s the store
+     * @param slot the AI to check
+     * @param now current game time in ms
+     * @return game time in ms until which the AI has nothing to do, or now if it has something to do already
+     */
+    private static long dormantUntil(HierarchicalAIStore s, int slot, long now) {
+        if (s.getState(slot) != HierarchicalAIState.IDLE || s.nextTransitionAt[slot] <= now) {
+            return now;
+        }
+        long wakeAt = s.nextTransitionAt[slot];
+        HierarchicalAIComponent ai = s.components[slot];
+        if (ai.hunter || ai.wild) {
+            wakeAt = Math.min(wakeAt, s.nextDangerCheckAt[slot]);
+        }
+        return Math.max(now, wakeAt);
     }
 
-    private void runAway(EntityRef entity, HierarchicalAIComponent ai) {
-        Vector3f tempTarget = localPlayer.getPosition(new Vector3f());
-        if (ai.forgiving != 0) {
-            ai.movementTarget.set(new Vector3f(
-                    -tempTarget.x + random.nextFloat(-ai.forgiving, ai.forgiving),
-                    -tempTarget.y + random.nextFloat(-ai.forgiving, ai.forgiving),
-                    -tempTarget.z + random.nextFloat(-ai.forgiving, ai.forgiving)
-            ));
-        } else {
-            ai.movementTarget
-                .set(new Vector3f(tempTarget.x * -1,
-                        tempTarget.y * -1, tempTarget.z
-                         * -1));
+    /**
+     * Commits a due AI's decision to the entity system. The state stays in the store until the next write back.
+     */
+    private void apply(int i, long now) {
+        EntityRef entity = store.dueEntity[i];
+        // An earlier AI's move may have led to this one being destroyed, or others being and this one moving slots
+        int slot = store.dueSlot[i];
+        if (slot >= roster.size() || roster.get(slot) != entity) {
+            slot = roster.slotOf(entity);
+            if (slot < 0) {
+                return;
+            }
+        }
+        // Idle AIs are left alone until they have something to do
+        long wakeAt = dormantUntil(store, slot, now);
+        if (wakeAt > now) {
+            roster.setNextDueAt(entity, Math.max(store.dueNextUpdateAt[i], wakeAt));
+        }
+        if (store.dueMove[i]) {
+            drive.set(store.dueDriveX[i], store.dueDriveY[i], store.dueDriveZ[i]);
+            // All of the time since its last turn, see SimpleAISystem.updateAI
+            entity.send(new CharacterMoveInputEvent(0, 0, store.dueYaw[i], drive, false, false, false,
+                    store.dueElapsed[i]));
         }
-        entity.saveComponent(ai);
-        ai.inDanger = true;
     }
 
-    private void randomWalk(Vector3fc worldPos, HierarchicalAIComponent ai) {
+    /**
+     * @param ai the AI to check
+     * @return how far away a player can be and still matter to the AI, distances are compared squared to the settings
+     */
+    private static float playerSearchRange(HierarchicalAIComponent ai) {
+        return (float) Math.sqrt(Math.max(ai.playerSense, ai.runDistance));
+    }
+
+    private static void randomWalk(HierarchicalAIStore s, int slot, long now, RandomStream random) {
+        HierarchicalAIComponent ai = s.components[slot];
+        float y = s.posY[slot];
         // if ai flies
         if (ai.flying) {
-            float targetY = 0;
             do {
-                targetY = worldPos.y() + random.nextFloat(-100.0f, 100.0f);
-            } while (targetY > ai.maxAltitude);
-            ai.movementTarget.set(
-                    worldPos.x() + random.nextFloat(-500.0f, 500.0f),
-                    targetY,
-                    worldPos.z() + random.nextFloat(-500.0f, 500.0f));
-        } else {
-            ai.movementTarget.set(
-                    worldPos.x() + random.nextFloat(-500.0f, 500.0f),
-                    worldPos.y(),
-                    worldPos.z() + random.nextFloat(-500.0f, 500.0f));
-        }
-        ai.lastChangeOfDirectionAt = time.getGameTimeInMs();
-    }
-
-    private boolean foodInFront() {
+                y = s.posY[slot] + random.nextFloat(-100.0f, 100.0f);
+            } while (y > ai.maxAltitude);
+        }
+        s.setTarget(slot,
+                s.posX[slot] + random.nextFloat(-500.0f, 500.0f),
+                y,
+                s.posZ[slot] + random.nextFloat(-500.0f, 500.0f));
+        s.nextDirectionChangeAt[slot] = now + randomDuration(random, ai.directionUpdateTime, ai.straightLined);
+    }
+
+    private static boolean foodInFront() {
         return false;
         // return true;
     }
 
+    /**
+     * Decides a range of due AIs, split in halves until small enough to do directly.
+     */
+    private static final class DecideTask extends RecursiveAction {
+        private final HierarchicalAIStore store;
+        private final long now;
+        private final long seed;
+        private final int from;
+        private final int to;
+
+        private DecideTask(HierarchicalAIStore store, long now, long seed, int from, int to) {
+            this.store = store;
+            this.now = now;
+            this.seed = seed;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= PARALLEL_THRESHOLD) {
+                RandomStream random = new RandomStream();
+                for (int i = from; i < to; i++) {
+                    decide(store, i, now, seed, random);
+                }
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new DecideTask(store, now, seed, from, middle),
+                        new DecideTask(store, now, seed, middle, to));
+            }
+        }
+    }
+
     //TODO change eating thingy to use this
     @ReceiveEvent(components = HierarchicalAIComponent.class)
     public void onBump(HorizontalCollisionEvent event, EntityRef entity, CharacterMovementComponent moveComp) {
@@ -243,6 +536,14 @@ public class HierarchicalAISystem extends BaseComponentSystem implements UpdateS
             moveComp.jump = true;
             entity.saveComponent(moveComp);
         }
+        // Walked into something, wandering AIs try another direction on their next update
+        int slot = roster.slotOf(entity);
+        if (slot >= 0 && !roster.isAwake(slot)) {
+            if (store.getState(slot) == HierarchicalAIState.WANDER) {
+                store.nextDirectionChangeAt[slot] = time.getGameTimeInMs();
+            }
+            roster.wake(entity);
+        }
     }
 
 }
@@ -0,0 +1,128 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.spawning.ai;
+
+import java.util.Arrays;
+
+/**
+ * Map from long keys (entity ids) to non-negative ints (slots) in two flat arrays, so looking a key up neither boxes
+ * it nor the result. Open addressing with linear probing; removal shifts later entries of the probe run back instead
+ * of leaving markers, so lookups never get slower from churn.
+ */
+final class LongIntMap {
+
+    /** Returned when a key isn't in the map */
+    static final int MISSING = -1;
+
+    private long[] keys;
+    /** Value plus one per bucket, 0 for an empty bucket */
+    private int[] values;
+    private int mask;
+    private int shift;
+    private int size;
+
+    LongIntMap() {
+        this(64);
+    }
+
+    /**
+     * @param capacity how many entries fit before the map grows, rounded up to a power of two
+     */
+    LongIntMap(int capacity) {
+        int buckets = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1) * 2;
+        keys = new long[buckets];
+        values = new int[buckets];
+        mask = buckets - 1;
+        shift = Long.numberOfLeadingZeros(mask);
+    }
+
+    /**
+     * @return the key's value, or {@link #MISSING}
+     */
+    int get(long key) {
+        for (int i = bucketOf(key); values[i] != 0; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return values[i] - 1;
+            }
+        }
+        return MISSING;
+    }
+
+    /**
+     * @param value the value to map the key to, replacing any earlier one, must not be negative
+     */
+    void put(long key, int value) {
+        int i = bucketOf(key);
+        for (; values[i] != 0; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                values[i] = value + 1;
+                return;
+            }
+        }
+        keys[i] = key;
+        values[i] = value + 1;
+        if (++size * 2 > keys.length) {
+            grow();
+        }
+    }
+
+    /**
+     * @return the key's value before removing it, or {@link #MISSING}
+     */
+    int remove(long key) {
+        int i = bucketOf(key);
+        while (values[i] != 0 && keys[i] != key) {
+            i = (i + 1) & mask;
+        }
+        if (values[i] == 0) {
+            return MISSING;
+        }
+        int removed = values[i] - 1;
+        // Move later entries of the run into the gap if the gap lies between their home bucket and where they are
+        int gap = i;
+        for (int j = (gap + 1) & mask; values[j] != 0; j = (j + 1) & mask) {
+            int home = bucketOf(keys[j]);
+            if (((j - home) & mask) >= ((j - gap) & mask)) {
+                keys[gap] = keys[j];
+                values[gap] = values[j];
+                gap = j;
+            }
+        }
+        values[gap] = 0;
+        size--;
+        return removed;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        Arrays.fill(values, 0);
+        size = 0;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new int[oldValues.length * 2];
+        mask = keys.length - 1;
+        shift = Long.numberOfLeadingZeros(mask);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != 0) {
+                int j = bucketOf(oldKeys[i]);
+                while (values[j] != 0) {
+                    j = (j + 1) & mask;
+                }
+                keys[j] = oldKeys[i];
+                values[j] = oldValues[i];
+            }
+        }
+    }
+
+    private int bucketOf(long key) {
+        // Fibonacci hashing, the top bits of the product spread sequential ids over the table
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> shift);
+    }
+}
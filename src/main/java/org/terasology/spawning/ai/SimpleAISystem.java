@@ -3,10 +3,12 @@
 package org.terasology.spawning.ai;
 
 import org.joml.Quaternionf;
+import org.joml.Quaternionfc;
 import org.joml.Vector3f;
 import org.terasology.engine.core.Time;
-import org.terasology.engine.entitySystem.entity.EntityManager;
 import org.terasology.engine.entitySystem.entity.EntityRef;
+import org.terasology.engine.entitySystem.entity.lifecycleEvents.BeforeDeactivateComponent;
+import org.terasology.engine.entitySystem.entity.lifecycleEvents.OnActivatedComponent;
 import org.terasology.engine.entitySystem.systems.BaseComponentSystem;
 import org.terasology.engine.entitySystem.systems.RegisterMode;
 import org.terasology.engine.entitySystem.systems.RegisterSystem;
@@ -15,73 +17,189 @@ import org.terasology.engine.logic.characters.CharacterMoveInputEvent;
 import org.terasology.engine.logic.characters.CharacterMovementComponent;
 import org.terasology.engine.logic.characters.events.HorizontalCollisionEvent;
 import org.terasology.engine.logic.location.LocationComponent;
-import org.terasology.engine.logic.players.LocalPlayer;
 import org.terasology.engine.registry.In;
-import org.terasology.engine.utilities.random.FastRandom;
-import org.terasology.engine.utilities.random.Random;
+import org.terasology.engine.registry.Share;
 import org.terasology.engine.world.WorldProvider;
 import org.terasology.gestalt.entitysystem.event.ReceiveEvent;
+import org.terasology.spawning.ProximityIndex;
+import org.terasology.spawning.RandomStream;
+import org.terasology.spawning.SpawningMetrics;
 
 @RegisterSystem(RegisterMode.AUTHORITY)
+@Share(SimpleAISystem.class)
 public class SimpleAISystem extends BaseComponentSystem implements UpdateSubscriberSystem {
 
+    /** Players further away than this are never followed, so there's no need to look for them */
+    private static final float FOLLOW_RANGE = 4;
+
+    /** Turns smaller than this, in radians (about 3 degrees), aren't written to the location */
+    private static final float ROTATION_THRESHOLD = 0.05f;
+
     @In
     private WorldProvider worldProvider;
     @In
-    private EntityManager entityManager;
-    private Random random = new FastRandom();
-    @In
     private Time time;
     @In
-    private LocalPlayer localPlayer;
+    private ProximityIndex proximityIndex;
+    @In
+    private SpawningMetrics metrics;
+
+    /** Every simple AI, the awake ones updated in turn within the per frame budget */
+    private final AIRoster roster = new AIRoster();
+    private final AIRoster.Visitor updateAI = this::updateAI;
+
+    private int maxAIsPerFrame = AIRoster.DEFAULT_MAX_PER_FRAME;
+    private long budgetNanos = AIRoster.DEFAULT_BUDGET_MICROS * 1000L;
+
+    /** Level of detail: every frame near players, every lodMidInterval ms further out, frozen beyond lodFarDistance */
+    private int lodNearDistance = 32;
+    private int lodFarDistance = 96;
+    private int lodMidInterval = 250;
+
+    /** Components saved during the current frame */
+    private int saves;
+
+    // Scratch space reused for every AI, both the location and the move event copy what they are given
+    private final Vector3f worldPos = new Vector3f();
+    private final Vector3f playerPosition = new Vector3f();
+    private final Vector3f drive = new Vector3f();
+    private final Quaternionf rotation = new Quaternionf();
+
+    /** Each AI draws from its own stream, keyed by its id and the game time, derived from the world seed */
+    private final RandomStream random = new RandomStream();
+    private long randomSeed;
+
+    @Override
+    public void initialise() {
+        randomSeed = RandomStream.seedOf(worldProvider.getSeed(), "simple AI");
+    }
+
+    @Override
+    public void shutdown() {
+        roster.clear();
+    }
+
+    /**
+     * Limits how much work the system does per frame, AIs that don't get a turn are picked up in later frames.
+     *
+     * @param maxPerFrame the most AIs to update in one frame
+     * @param budgetMicros the most real time in microseconds to spend updating AIs in one frame
+     */
+    public void setUpdateBudget(int maxPerFrame, int budgetMicros) {
+        this.maxAIsPerFrame = Math.max(1, maxPerFrame);
+        this.budgetNanos = Math.max(1, budgetMicros) * 1000L;
+    }
+
+    /**
+     * Sets how update rates drop off with distance from the nearest player.
+     *
+     * @param nearDistance AIs within this distance of a player are updated every frame
+     * @param farDistance AIs further than this from any player are frozen
+     * @param midInterval time in ms between updates for AIs in between
+     */
+    public void setLevelOfDetail(int nearDistance, int farDistance, int midInterval) {
+        this.lodNearDistance = nearDistance;
+        this.lodFarDistance = Math.max(nearDistance, farDistance);
+        this.lodMidInterval = Math.max(0, midInterval);
+    }
+
+    @ReceiveEvent(components = {SimpleAIComponent.class, CharacterMovementComponent.class, LocationComponent.class})
+    public void onAIActivated(OnActivatedComponent event, EntityRef entity) {
+        roster.add(entity, time.getGameTimeInMs());
+    }
+
+    @ReceiveEvent(components = {SimpleAIComponent.class, CharacterMovementComponent.class, LocationComponent.class})
+    public void onAIDeactivated(BeforeDeactivateComponent event, EntityRef entity) {
+        roster.remove(entity);
+    }
 
     @Override
     public void update(float delta) {
-        for (EntityRef entity : entityManager.getEntitiesWith(SimpleAIComponent.class,
-                CharacterMovementComponent.class, LocationComponent.class)) {
-            LocationComponent location = entity.getComponent(LocationComponent.class);
-            Vector3f worldPos = location.getWorldPosition(new Vector3f());
-
-            // Skip this AI if not in a loaded chunk
-            if (!worldProvider.isBlockRelevant(worldPos)) {
-                continue;
+        long startNanos = System.nanoTime();
+        saves = 0;
+        int processed = roster.process(time.getGameTimeInMs(), maxAIsPerFrame, budgetNanos, updateAI);
+        metrics.record(SpawningMetrics.Histogram.SIMPLE_AI_UPDATE_MICROS, (System.nanoTime() - startNanos) / 1000);
+        metrics.record(SpawningMetrics.Histogram.SIMPLE_AI_PROCESSED, processed);
+        metrics.record(SpawningMetrics.Histogram.SIMPLE_AI_SAVES, saves);
+    }
+
+    /**
+     * Updates a single AI.
+     *
+     * @param entity the AI entity
+     * @param slot the AI's slot in the roster
+     * @param elapsedMs game time in ms since this AI was last updated, its move covers all of it
+     * @return game time in ms at which the AI should next be updated, depending on how far the nearest player is
+     */
+    private long updateAI(EntityRef entity, int slot, long elapsedMs) {
+        long now = time.getGameTimeInMs();
+        LocationComponent location = entity.getComponent(LocationComponent.class);
+        location.getWorldPosition(worldPos);
+
+        // Skip this AI if not in a loaded chunk
+        if (!worldProvider.isBlockRelevant(worldPos)) {
+            return now + AILevelOfDetail.FROZEN_RECHECK_MS;
+        }
+
+        EntityRef player = proximityIndex.findNearestPlayer(worldPos, Math.max(FOLLOW_RANGE, lodFarDistance),
+                playerPosition);
+        double distanceToPlayer = player.exists() ? worldPos.distanceSquared(playerPosition) : Double.MAX_VALUE;
+        float distance = (float) Math.sqrt(distanceToPlayer);
+        long nextUpdateAt = AILevelOfDetail.nextUpdateAt(now, distance, lodNearDistance, lodFarDistance, lodMidInterval);
+        if (AILevelOfDetail.isFrozen(distance, lodFarDistance)) {
+            return nextUpdateAt;
+        }
+
+        SimpleAIComponent ai = entity.getComponent(SimpleAIComponent.class);
+
+        if (distanceToPlayer > 6 && distanceToPlayer < 16) {
+            // Head to player, only worth saving if the player moved or we weren't following yet
+            if (!ai.followingPlayer || !ai.movementTarget.equals(playerPosition)) {
+                ai.movementTarget.set(playerPosition);
+                ai.followingPlayer = true;
+                entity.saveComponent(ai);
+                saves++;
             }
-            SimpleAIComponent ai = entity.getComponent(SimpleAIComponent.class);
-
-            Vector3f drive = new Vector3f();
-            // TODO: shouldn't use local player, need some way to find nearest player
-            if (localPlayer != null) {
-                final Vector3f playerPosition = localPlayer.getPosition(new Vector3f());
-                double distanceToPlayer = worldPos.distanceSquared(playerPosition);
-
-                if (distanceToPlayer > 6 && distanceToPlayer < 16) {
-                    // Head to player
-                    ai.movementTarget.set(playerPosition);
-                    ai.followingPlayer = true;
-                    entity.saveComponent(ai);
-                } else {
-                    // Random walk
-                    if (time.getGameTimeInMs() - ai.lastChangeOfDirectionAt > 12000 || ai.followingPlayer) {
-                        ai.movementTarget.set(worldPos.x + random.nextFloat(-500.0f, 500.0f), worldPos.y,
-                                worldPos.z + random.nextFloat(-500.0f, 500.0f));
-                        ai.lastChangeOfDirectionAt = time.getGameTimeInMs();
-                        ai.followingPlayer = false;
-                        entity.saveComponent(ai);
-                    }
-                }
-
-                Vector3f targetDirection = new Vector3f();
-                targetDirection.sub(ai.movementTarget, worldPos);
-                targetDirection.normalize();
-                drive.set(targetDirection);
-
-                float yaw = (float) Math.atan2(targetDirection.x, targetDirection.z);
-                location.setLocalRotation(new Quaternionf().setAngleAxis(yaw, 0, 1, 0));
-                entity.saveComponent(location);
+        } else {
+            // Random walk
+            if (time.getGameTimeInMs() - ai.lastChangeOfDirectionAt > 12000 || ai.followingPlayer) {
+                random.reset(randomSeed, entity.getId(), now);
+                ai.movementTarget.set(worldPos.x + random.nextFloat(-500.0f, 500.0f), worldPos.y,
+                        worldPos.z + random.nextFloat(-500.0f, 500.0f));
+                ai.lastChangeOfDirectionAt = time.getGameTimeInMs();
+                ai.followingPlayer = false;
+                entity.saveComponent(ai);
+                saves++;
             }
-            entity.send(new CharacterMoveInputEvent(0, 0, 0, drive,
-                    false, false, false, time.getGameDeltaInMs()));
         }
+
+        ai.movementTarget.sub(worldPos, drive).normalize();
+
+        float yaw = (float) Math.atan2(drive.x, drive.z);
+        // Saving the location fires change events and replicates it, not worth it for a barely visible turn
+        if (Math.abs(angleBetween(yaw, yawOf(location.getLocalRotation()))) >= ROTATION_THRESHOLD) {
+            location.setLocalRotation(rotation.setAngleAxis(yaw, 0, 1, 0));
+            entity.saveComponent(location);
+            saves++;
+        }
+        // All of the time since its last turn, so AIs updated less often still cover the same ground. The character
+        // prediction adds it to the end of the AI's previous move, which was no later than that turn
+        entity.send(new CharacterMoveInputEvent(0, 0, 0, drive, false, false, false, elapsedMs));
+        return nextUpdateAt;
+    }
+
+    /**
+     * @return the rotation around the y axis of a rotation that only turns around it, in radians
+     */
+    private static float yawOf(Quaternionfc rotation) {
+        return 2 * (float) Math.atan2(rotation.y(), rotation.w());
+    }
+
+    /**
+     * @return the signed difference between two angles in radians, in [-pi, pi]
+     */
+    private static float angleBetween(float a, float b) {
+        return (float) Math.IEEEremainder(a - b, 2 * Math.PI);
     }
 
     @ReceiveEvent(components = SimpleAIComponent.class)
@@ -0,0 +1,88 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.spawning;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AliasTableTest {
+
+    private static final int PICKS = 100_000;
+
+    @Test
+    public void testPicksFollowTheWeights() {
+        AliasTable<String> table = AliasTable.of(List.of("a", "b", "c", "d"), new double[]{1, 2, 3, 4});
+
+        // Evenly spread uniforms hit every column and coin flip in proportion
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < PICKS; i++) {
+            counts.merge(table.pick((i + 0.5) / PICKS), 1, Integer::sum);
+        }
+        assertEquals(0.1, counts.get("a") / (double) PICKS, 0.001);
+        assertEquals(0.2, counts.get("b") / (double) PICKS, 0.001);
+        assertEquals(0.3, counts.get("c") / (double) PICKS, 0.001);
+        assertEquals(0.4, counts.get("d") / (double) PICKS, 0.001);
+    }
+
+    @Test
+    public void testPicksFollowTheWeightsForRandomNumbers() {
+        AliasTable<String> table = AliasTable.of(List.of("rare", "common"), new double[]{1, 99});
+        Random random = new Random(42);
+
+        int rare = 0;
+        for (int i = 0; i < PICKS; i++) {
+            if ("rare".equals(table.pick(random.nextDouble()))) {
+                rare++;
+            }
+        }
+        assertEquals(0.01, rare / (double) PICKS, 0.002);
+    }
+
+    @Test
+    public void testItemsWithoutWeightAreLeftOut() {
+        AliasTable<String> table = AliasTable.of(List.of("never", "always", "negative"), new double[]{0, 5, -1});
+
+        assertEquals(1, table.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals("always", table.pick(i / 100.0));
+        }
+    }
+
+    @Test
+    public void testSharesSumToOne() {
+        AliasTable<String> table = AliasTable.of(List.of("a", "b", "c"), new double[]{3, 1, 4});
+
+        double total = 0;
+        for (int i = 0; i < table.size(); i++) {
+            total += table.share(i);
+        }
+        assertEquals(1.0, total, 1e-9);
+        assertEquals(0.375, table.share(0), 1e-9);
+    }
+
+    @Test
+    public void testEdgesOfTheUniformRange() {
+        AliasTable<String> table = AliasTable.of(List.of("a", "b", "c"), new double[]{1, 1, 1});
+
+        assertEquals("a", table.pick(0));
+        assertEquals("c", table.pick(Math.nextDown(1.0)));
+    }
+
+    @Test
+    public void testEmptyTable() {
+        AliasTable<String> table = AliasTable.of(List.of("a"), new double[]{0});
+
+        assertTrue(table.isEmpty());
+        assertNull(table.pick(0.5));
+        assertFalse(AliasTable.of(List.of("a"), new double[]{1}).isEmpty());
+    }
+}
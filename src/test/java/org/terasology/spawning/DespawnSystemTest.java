@@ -0,0 +1,97 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.spawning;
+
+import org.joml.Vector3f;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.terasology.engine.logic.location.LocationComponent;
+import org.terasology.spawning.EngineFakes.FakeEntity;
+import org.terasology.spawning.EngineFakes.FakeTime;
+import org.terasology.spawning.ai.HierarchicalAIComponent;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DespawnSystemTest {
+
+    private FakeTime time;
+    private DespawnSystem system;
+    private long nextId = 2;
+
+    @BeforeEach
+    public void setup() {
+        time = EngineFakes.create(FakeTime.class);
+        ProximityIndex proximityIndex = new ProximityIndex();
+        SpawningMetrics metrics = new SpawningMetrics();
+        EngineFakes.inject(metrics, time);
+        SpawnablePool pool = new SpawnablePool();
+        EngineFakes.inject(pool, metrics);
+        system = new DespawnSystem();
+        EngineFakes.inject(system, time, proximityIndex, pool, metrics);
+
+        FakeEntity player = EngineFakes.create(FakeEntity.class, 1L);
+        LocationComponent playerLocation = player.addComponent(new LocationComponent(new Vector3f()));
+        proximityIndex.onPlayerActivated(null, player, playerLocation);
+    }
+
+    @Test
+    public void testSpawnablesDespawnPastTheirDistance() {
+        FakeEntity near = spawnable(100);
+        FakeEntity far = spawnable(150);
+        sweep();
+
+        assertTrue(near.exists());
+        assertFalse(far.exists());
+    }
+
+    @Test
+    public void testDieDistanceIsConvertedFromSquared() {
+        // The default dieDistance of 2000 is about 45 blocks
+        FakeEntity near = ai(40, new HierarchicalAIComponent());
+        FakeEntity far = ai(50, new HierarchicalAIComponent());
+        HierarchicalAIComponent longer = new HierarchicalAIComponent();
+        longer.despawnDistance = 60;
+        FakeEntity nearEnough = ai(50, longer);
+        sweep();
+
+        assertTrue(near.exists());
+        assertFalse(far.exists());
+        assertTrue(nearEnough.exists());
+    }
+
+    @Test
+    public void testSpawnablesLosingTheirAIGoByTheirOwnDistance() {
+        FakeEntity entity = spawnable(100);
+        entity.addComponent(new HierarchicalAIComponent());
+        system.onAIActivated(null, entity);
+
+        // Sent while the component is still there, as the engine does
+        system.onAIDeactivated(null, entity);
+        entity.removeComponent(HierarchicalAIComponent.class);
+        sweep();
+
+        assertTrue(entity.exists());
+    }
+
+    private FakeEntity spawnable(float x) {
+        FakeEntity entity = EngineFakes.create(FakeEntity.class, nextId++);
+        entity.addComponent(new LocationComponent(new Vector3f(x, 0, 0)));
+        entity.addComponent(new SpawnableComponent());
+        system.onSpawnableActivated(null, entity);
+        return entity;
+    }
+
+    private FakeEntity ai(float x, HierarchicalAIComponent ai) {
+        FakeEntity entity = EngineFakes.create(FakeEntity.class, nextId++);
+        entity.addComponent(new LocationComponent(new Vector3f(x, 0, 0)));
+        entity.addComponent(ai);
+        system.onAIActivated(null, entity);
+        return entity;
+    }
+
+    private void sweep() {
+        time.advance(2000);
+        system.update(2);
+    }
+}
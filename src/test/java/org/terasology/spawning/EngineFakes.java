@@ -0,0 +1,456 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.spawning;
+
+import net.bytebuddy.ByteBuddy;
+import net.bytebuddy.implementation.ExceptionMethod;
+import net.bytebuddy.matcher.ElementMatchers;
+import org.joml.Vector3fc;
+import org.joml.Vector3ic;
+import org.terasology.engine.core.Time;
+import org.terasology.engine.entitySystem.entity.EntityBuilder;
+import org.terasology.engine.entitySystem.entity.EntityManager;
+import org.terasology.engine.entitySystem.entity.EntityRef;
+import org.terasology.engine.entitySystem.prefab.Prefab;
+import org.terasology.engine.entitySystem.prefab.PrefabData;
+import org.terasology.engine.entitySystem.prefab.PrefabManager;
+import org.terasology.engine.entitySystem.prefab.internal.PojoPrefab;
+import org.terasology.engine.registry.In;
+import org.terasology.engine.world.WorldProvider;
+import org.terasology.engine.world.block.Block;
+import org.terasology.gestalt.assets.AssetType;
+import org.terasology.gestalt.assets.ResourceUrn;
+import org.terasology.gestalt.entitysystem.component.Component;
+import org.terasology.gestalt.entitysystem.event.Event;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Stand-ins for the engine services and entities the systems use, for tests that run systems outside the engine.
+ * Unlike mocks they don't record calls, so long runs stay fast and allocation measurements only see what the systems
+ * allocate. Each fake implements what the systems call, everything else throws.
+ */
+public final class EngineFakes {
+
+    private static final AssetType<Prefab, PrefabData> PREFABS = new AssetType<>(Prefab.class, PojoPrefab::new);
+
+    private EngineFakes() {
+    }
+
+    /**
+     * Creates a prefab the way the asset system loads one.
+     *
+     * @param urn the prefab's urn, e.g. "test:deer"
+     * @param components the prefab's components, entities built from it get copies
+     */
+    public static Prefab prefab(String urn, Component... components) {
+        PrefabData data = new PrefabData();
+        for (Component component : components) {
+            data.addComponent(component);
+        }
+        return PREFABS.loadAsset(new ResourceUrn(urn), data);
+    }
+
+    /**
+     * Creates an instance of a partially implemented class, its abstract methods throw.
+     *
+     * @param partial an abstract class implementing the methods that are needed
+     * @param args passed to the constructor taking that many arguments
+     */
+    public static <T> T create(Class<T> partial, Object... args) {
+        Class<? extends T> type = new ByteBuddy()
+                .subclass(partial)
+                .method(ElementMatchers.isAbstract())
+                .intercept(ExceptionMethod.throwing(UnsupportedOperationException.class))
+                .make()
+                .load(partial.getClassLoader())
+                .getLoaded();
+        try {
+            for (Constructor<?> constructor : type.getDeclaredConstructors()) {
+                if (constructor.getParameterCount() == args.length) {
+                    return partial.cast(constructor.newInstance(args));
+                }
+            }
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not create " + partial.getSimpleName(), e);
+        }
+        throw new IllegalArgumentException(partial.getSimpleName() + " has no constructor taking " + args.length
+                + " arguments");
+    }
+
+    /**
+     * Fills the system's {@link In} fields with the first given service of the field's type, like the engine does
+     * when registering systems.
+     */
+    public static void inject(Object system, Object... services) {
+        for (Class<?> type = system.getClass(); type != Object.class; type = type.getSuperclass()) {
+            for (Field field : type.getDeclaredFields()) {
+                if (!field.isAnnotationPresent(In.class)) {
+                    continue;
+                }
+                for (Object service : services) {
+                    if (field.getType().isInstance(service)) {
+                        field.setAccessible(true);
+                        try {
+                            field.set(system, service);
+                        } catch (IllegalAccessException e) {
+                            throw new IllegalStateException("Could not inject " + field, e);
+                        }
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * An entity holding its components in a map. Sent events aren't handled, only the last one is kept.
+     */
+    public abstract static class FakeEntity extends EntityRef {
+
+        private final long id;
+        private final Map<Class<?>, Component> components = new HashMap<>();
+        private boolean destroyed;
+        private int sentEvents;
+        private Event lastEvent;
+        private Consumer<FakeEntity> onDestroyed = entity -> {
+        };
+
+        public FakeEntity(long id) {
+            this.id = id;
+        }
+
+        /**
+         * @param listener called when the entity is destroyed, while it still has its components
+         */
+        public void setOnDestroyed(Consumer<FakeEntity> listener) {
+            this.onDestroyed = listener;
+        }
+
+        public int getSentEvents() {
+            return sentEvents;
+        }
+
+        public Event getLastEvent() {
+            return lastEvent;
+        }
+
+        @Override
+        public long getId() {
+            return id;
+        }
+
+        @Override
+        public boolean exists() {
+            return !destroyed;
+        }
+
+        @Override
+        public boolean isActive() {
+            return !destroyed;
+        }
+
+        @Override
+        public void destroy() {
+            if (destroyed) {
+                return;
+            }
+            onDestroyed.accept(this);
+            destroyed = true;
+            components.clear();
+        }
+
+        @Override
+        public <T extends Component> T getComponent(Class<T> componentClass) {
+            return componentClass.cast(components.get(componentClass));
+        }
+
+        @Override
+        public boolean hasComponent(Class<? extends Component> componentClass) {
+            return components.containsKey(componentClass);
+        }
+
+        @Override
+        public <T extends Component> T addComponent(T component) {
+            components.put(component.getClass(), component);
+            return component;
+        }
+
+        @Override
+        public void removeComponent(Class<? extends Component> componentClass) {
+            components.remove(componentClass);
+        }
+
+        @Override
+        public void saveComponent(Component component) {
+            components.put(component.getClass(), component);
+        }
+
+        @Override
+        public <T extends Component> T addOrSaveComponent(T component) {
+            return addComponent(component);
+        }
+
+        @Override
+        public Prefab getParentPrefab() {
+            return null;
+        }
+
+        @Override
+        public <T extends Event> T send(T event) {
+            sentEvents++;
+            lastEvent = event;
+            return event;
+        }
+    }
+
+    /**
+     * Keeps existing entities in a map. Entities are built from prefabs through a mocked builder, everything else about
+     * entity lifecycles is up to the test: created and destroyed entities are handed to listeners, where the test can
+     * pass them on to the systems' lifecycle handlers.
+     */
+    public abstract static class FakeEntityManager implements EntityManager {
+
+        private final Map<Long, FakeEntity> entities = new LinkedHashMap<>();
+        private final Map<Class<?>, Component> building = new LinkedHashMap<>();
+        private final EntityBuilder builder = mock(EntityBuilder.class);
+        private Consumer<FakeEntity> onCreated = entity -> {
+        };
+        private Consumer<FakeEntity> onDestroyed = entity -> {
+        };
+        private long nextId = 1;
+
+        public FakeEntityManager() {
+            when(builder.getComponent(any())).thenAnswer(invocation -> building.get(invocation.getArgument(0)));
+            when(builder.hasComponent(any())).thenAnswer(invocation -> building.containsKey(invocation.getArgument(0)));
+            when(builder.addComponent(any())).thenAnswer(invocation -> {
+                Component component = invocation.getArgument(0);
+                building.put(component.getClass(), component);
+                return component;
+            });
+            when(builder.build()).thenAnswer(invocation -> create(building.values()));
+        }
+
+        /**
+         * @param listener called for every entity created, after its components were added
+         */
+        public void setOnCreated(Consumer<FakeEntity> listener) {
+            this.onCreated = listener;
+        }
+
+        /**
+         * @param listener called for every entity about to be destroyed, while it still has its components
+         */
+        public void setOnDestroyed(Consumer<FakeEntity> listener) {
+            this.onDestroyed = listener;
+        }
+
+        /**
+         * @return how many entities exist
+         */
+        public int size() {
+            return entities.size();
+        }
+
+        public FakeEntity create(Collection<Component> components) {
+            FakeEntity entity = EngineFakes.create(FakeEntity.class, nextId++);
+            for (Component component : components) {
+                entity.addComponent(component);
+            }
+            entities.put(entity.getId(), entity);
+            entity.setOnDestroyed(destroyed -> {
+                onDestroyed.accept(destroyed);
+                entities.remove(destroyed.getId());
+            });
+            onCreated.accept(entity);
+            return entity;
+        }
+
+        @Override
+        public EntityBuilder newBuilder(Prefab prefab) {
+            building.clear();
+            for (Component component : prefab.iterateComponents()) {
+                building.put(component.getClass(), copy(component));
+            }
+            return builder;
+        }
+
+        @Override
+        public EntityRef getEntity(long id) {
+            FakeEntity entity = entities.get(id);
+            return entity != null && entity.exists() ? entity : EntityRef.NULL;
+        }
+
+        /**
+         * @return a copy of the matching entities, so they can be destroyed while going through them
+         */
+        @SafeVarargs
+        @Override
+        public final Iterable<EntityRef> getEntitiesWith(Class<? extends Component>... componentClasses) {
+            List<EntityRef> matching = new ArrayList<>();
+            for (FakeEntity entity : entities.values()) {
+                if (entity.exists() && hasAll(entity, componentClasses)) {
+                    matching.add(entity);
+                }
+            }
+            return matching;
+        }
+
+        @SafeVarargs
+        @Override
+        public final int getCountOfEntitiesWith(Class<? extends Component>... componentClasses) {
+            int count = 0;
+            for (FakeEntity entity : entities.values()) {
+                if (entity.exists() && hasAll(entity, componentClasses)) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        private static boolean hasAll(EntityRef entity, Class<? extends Component>[] componentClasses) {
+            for (Class<? extends Component> componentClass : componentClasses) {
+                if (!entity.hasComponent(componentClass)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private static Component copy(Component component) {
+            try {
+                Component copy = component.getClass().getDeclaredConstructor().newInstance();
+                copy.copyFrom(component);
+                return copy;
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Could not copy " + component.getClass().getSimpleName(), e);
+            }
+        }
+    }
+
+    /**
+     * Serves a fixed list of prefabs.
+     */
+    public abstract static class FakePrefabManager implements PrefabManager {
+
+        private final List<Prefab> prefabs = new ArrayList<>();
+
+        public List<Prefab> getPrefabs() {
+            return prefabs;
+        }
+
+        @Override
+        public Prefab getPrefab(String name) {
+            ResourceUrn urn = new ResourceUrn(name);
+            for (Prefab prefab : prefabs) {
+                if (prefab.getUrn().equals(urn)) {
+                    return prefab;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public Collection<Prefab> listPrefabs(Class<? extends Component> withComponent) {
+            List<Prefab> matching = new ArrayList<>();
+            for (Prefab prefab : prefabs) {
+                if (prefab.hasComponent(withComponent)) {
+                    matching.add(prefab);
+                }
+            }
+            return matching;
+        }
+    }
+
+    /**
+     * Game time that only moves when told to.
+     */
+    public abstract static class FakeTime implements Time {
+
+        private long gameTimeMs;
+        private long deltaMs;
+
+        public void advance(long ms) {
+            gameTimeMs += ms;
+            deltaMs = ms;
+        }
+
+        @Override
+        public long getGameTimeInMs() {
+            return gameTimeMs;
+        }
+
+        @Override
+        public long getGameDeltaInMs() {
+            return deltaMs;
+        }
+
+        @Override
+        public float getGameDelta() {
+            return deltaMs / 1000f;
+        }
+
+        @Override
+        public long getRealTimeInMs() {
+            return gameTimeMs;
+        }
+    }
+
+    /**
+     * A flat world: solid below y 0, air from there up. It is loaded everywhere unless limited to x below a bound.
+     */
+    public abstract static class FakeWorld implements WorldProvider {
+
+        private final Block air = block(true);
+        private final Block ground = block(false);
+        private int loadedBelowX = Integer.MAX_VALUE;
+
+        public void setLoadedBelowX(int x) {
+            loadedBelowX = x;
+        }
+
+        @Override
+        public String getSeed() {
+            return "fake";
+        }
+
+        @Override
+        public Block getBlock(int x, int y, int z) {
+            return y >= 0 ? air : ground;
+        }
+
+        @Override
+        public boolean isBlockRelevant(int x, int y, int z) {
+            return x < loadedBelowX;
+        }
+
+        @Override
+        public boolean isBlockRelevant(Vector3ic position) {
+            return position.x() < loadedBelowX;
+        }
+
+        @Override
+        public boolean isBlockRelevant(Vector3fc position) {
+            return Math.round(position.x()) < loadedBelowX;
+        }
+
+        private static Block block(boolean penetrable) {
+            Block block = new Block();
+            block.setPenetrable(penetrable);
+            return block;
+        }
+    }
+}
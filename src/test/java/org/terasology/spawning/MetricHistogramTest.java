@@ -0,0 +1,67 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.spawning;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MetricHistogramTest {
+
+    private MetricHistogram histogram;
+
+    @BeforeEach
+    public void setup() {
+        histogram = new MetricHistogram();
+    }
+
+    @Test
+    public void testEmpty() {
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getPercentile(0.99));
+        assertEquals(0, histogram.getMean(), 0);
+    }
+
+    @Test
+    public void testPercentilesAreUpperBoundsWithinAFactorOfTwo() {
+        for (int value = 1; value <= 1000; value++) {
+            histogram.record(value);
+        }
+
+        long p50 = histogram.getPercentile(0.5);
+        assertTrue(p50 >= 500 && p50 < 1000, "p50 " + p50);
+        long p99 = histogram.getPercentile(0.99);
+        assertTrue(p99 >= 990 && p99 <= 1000, "p99 " + p99);
+        assertEquals(1000, histogram.getMax());
+        assertEquals(500.5, histogram.getMean(), 1e-9);
+    }
+
+    @Test
+    public void testPercentilesNeverExceedTheMax() {
+        histogram.record(5);
+        histogram.record(5);
+
+        assertEquals(5, histogram.getPercentile(0.5));
+        assertEquals(5, histogram.getPercentile(1));
+    }
+
+    @Test
+    public void testNegativeValuesCountAsZero() {
+        histogram.record(-10);
+
+        assertEquals(1, histogram.getCount());
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.getPercentile(1));
+    }
+
+    @Test
+    public void testClear() {
+        histogram.record(100);
+        histogram.clear();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMax());
+    }
+}
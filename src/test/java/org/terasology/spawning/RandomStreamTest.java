@@ -0,0 +1,55 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.spawning;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RandomStreamTest {
+
+    @Test
+    public void testSameSeedStreamAndPositionGiveTheSameNumbers() {
+        RandomStream first = new RandomStream(1, 2, 3);
+        RandomStream second = new RandomStream();
+        second.nextLong();
+        second.reset(1, 2, 3);
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals(first.nextLong(), second.nextLong());
+        }
+    }
+
+    @Test
+    public void testDifferentStreamsDiffer() {
+        assertNotEquals(new RandomStream(1, 2, 3).nextLong(), new RandomStream(1, 3, 3).nextLong());
+        assertNotEquals(new RandomStream(1, 2, 3).nextLong(), new RandomStream(1, 2, 4).nextLong());
+        assertNotEquals(new RandomStream(1, 2, 3).nextLong(), new RandomStream(2, 2, 3).nextLong());
+    }
+
+    @Test
+    public void testRanges() {
+        RandomStream random = new RandomStream(7, 0, 0);
+        int[] counts = new int[10];
+        for (int i = 0; i < 100_000; i++) {
+            double d = random.nextDouble();
+            assertTrue(d >= 0 && d < 1);
+            float f = random.nextFloat(-5, 5);
+            assertTrue(f >= -5 && f < 5);
+            counts[random.nextInt(10)]++;
+        }
+        for (int count : counts) {
+            assertEquals(10_000, count, 500);
+        }
+    }
+
+    @Test
+    public void testSeedsDependOnWorldAndPurpose() {
+        assertEquals(RandomStream.seedOf("world", "spawner"), RandomStream.seedOf("world", "spawner"));
+        assertNotEquals(RandomStream.seedOf("world", "spawner"), RandomStream.seedOf("world", "ai"));
+        assertNotEquals(RandomStream.seedOf("world", "spawner"), RandomStream.seedOf("other", "spawner"));
+        assertEquals(RandomStream.seedOf(null, "spawner"), RandomStream.seedOf("", "spawner"));
+    }
+}
@@ -0,0 +1,106 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.spawning;
+
+import org.joml.Vector3f;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.terasology.engine.entitySystem.entity.EntityRef;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class SpatialHashTest {
+
+    private SpatialHash hash;
+    private EntityRef near;
+    private EntityRef far;
+
+    @BeforeEach
+    public void setup() {
+        // 16 block cells
+        hash = new SpatialHash(4);
+        near = entity(1);
+        far = entity(2);
+    }
+
+    @Test
+    public void testFindsTheNearestWithinDistance() {
+        hash.put(near, 10, 0, 10);
+        hash.put(far, 40, 0, 40);
+
+        Vector3f found = new Vector3f();
+        assertSame(near, hash.findNearest(new Vector3f(12, 0, 12), 100, found));
+        assertEquals(new Vector3f(10, 0, 10), found);
+        assertSame(far, hash.findNearest(new Vector3f(38, 0, 38), 100, found));
+        assertEquals(new Vector3f(40, 0, 40), found);
+    }
+
+    @Test
+    public void testFindsNothingOutOfDistance() {
+        hash.put(far, 40, 0, 40);
+
+        Vector3f found = new Vector3f(-1, -1, -1);
+        assertFalse(hash.findNearest(new Vector3f(0, 0, 0), 50, found).exists());
+        assertEquals(new Vector3f(-1, -1, -1), found);
+    }
+
+    @Test
+    public void testSmallAndLargeSearchesAgree() {
+        // Enough entities that a small search goes by cells, while a large one checks them all
+        for (int i = 0; i < 100; i++) {
+            hash.put(entity(100 + i), i * 7 % 200 - 100, 0, i * 13 % 200 - 100);
+        }
+        hash.put(near, 3, 0, 4);
+
+        Vector3f found = new Vector3f();
+        assertSame(near, hash.findNearest(new Vector3f(3, 0, 5), 2, found));
+        assertSame(near, hash.findNearest(new Vector3f(3, 0, 5), 1000, found));
+    }
+
+    @Test
+    public void testMovingAcrossCells() {
+        hash.put(near, 0, 0, 0);
+        hash.put(near, 100, 0, 100);
+
+        assertEquals(1, hash.size());
+        Vector3f found = new Vector3f();
+        assertFalse(hash.findNearest(new Vector3f(0, 0, 0), 10, found).exists());
+        assertSame(near, hash.findNearest(new Vector3f(100, 0, 100), 10, found));
+    }
+
+    @Test
+    public void testForEachWithinUsesTheFullDistance() {
+        hash.put(near, 0, 10, 0);
+        hash.put(far, 0, 0, 30);
+
+        Set<EntityRef> within = new HashSet<>();
+        hash.forEachWithin(new Vector3f(0, 0, 0), 20, within::add);
+        assertEquals(Set.of(near), within);
+    }
+
+    @Test
+    public void testRemoving() {
+        hash.put(near, 0, 0, 0);
+        hash.put(far, 1, 0, 1);
+        hash.remove(near);
+        hash.remove(near);
+
+        assertEquals(1, hash.size());
+        assertFalse(hash.contains(near));
+        assertSame(far, hash.findNearest(new Vector3f(0, 0, 0), 10, new Vector3f()));
+    }
+
+    private static EntityRef entity(long id) {
+        EntityRef entity = mock(EntityRef.class);
+        when(entity.getId()).thenReturn(id);
+        when(entity.exists()).thenReturn(true);
+        return entity;
+    }
+}
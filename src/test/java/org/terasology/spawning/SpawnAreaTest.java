@@ -0,0 +1,65 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.spawning;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SpawnAreaTest {
+
+    @Test
+    public void testPickedColumnsLieInTheRing() {
+        SpawnArea area = new SpawnArea(100, 50, -100, 20, 25);
+        Random random = new Random(3);
+
+        for (int i = 0; i < 10_000; i++) {
+            int column = area.pickColumn(random.nextDouble(), random.nextDouble());
+            int dx = area.getX(column) - 100;
+            int dz = area.getZ(column) + 100;
+            double distance = Math.sqrt(dx * dx + dz * dz);
+            // Rounded to whole blocks, so up to half a block off in each direction
+            assertTrue(distance >= 5 - 1 && distance <= 20 + 1, "distance " + distance);
+        }
+    }
+
+    @Test
+    public void testRadiiSpreadEvenlyOverTheRing() {
+        // Half the area of a disc of radius 10 is within radius 10 / sqrt(2)
+        assertEquals(10 / Math.sqrt(2), SpawnArea.pickRadius(10, 0, 0.5), 1e-9);
+        // The minimum distance is squared
+        assertEquals(3, SpawnArea.pickRadius(10, 9, 0), 1e-9);
+        assertEquals(10, SpawnArea.pickRadius(10, 300, 0.5), 1e-9);
+    }
+
+    @Test
+    public void testColumnsStartUnknownAndCanBeInvalidated() {
+        SpawnArea area = new SpawnArea(0, 0, 0, 4, 0);
+        int column = area.pickColumn(0.5, 0.25);
+        assertEquals(SpawnArea.UNKNOWN, area.getOpenY(column));
+
+        area.setOpenY(column, 7);
+        area.invalidate(area.getX(column) + 100, area.getZ(column));
+        assertEquals(7, area.getOpenY(column));
+        area.invalidate(area.getX(column), area.getZ(column));
+        assertEquals(SpawnArea.UNKNOWN, area.getOpenY(column));
+    }
+
+    @Test
+    public void testMatchesItsSpawnerSettings() {
+        SpawnArea area = new SpawnArea(1, 2, 3, 20, 500);
+
+        assertTrue(area.matches(1, 2, 3, 20, 500));
+        // A minimum distance past the range is the same as the range
+        assertTrue(area.matches(1, 2, 3, 20, 450));
+        assertFalse(area.matches(1, 2, 3, 20, 300));
+        assertFalse(area.matches(1, 2, 4, 20, 500));
+        assertFalse(area.matches(1, 2, 3, 21, 500));
+        assertEquals(-19, area.getMinX());
+        assertEquals(23, area.getMaxZ());
+    }
+}
@@ -0,0 +1,65 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.spawning;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.terasology.engine.entitySystem.entity.EntityRef;
+import org.terasology.spawning.EngineFakes.FakeWorld;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SpawnColumnScannerTest {
+
+    private FakeWorld world;
+    private SpawnColumnScanner scanner;
+
+    @BeforeEach
+    public void setup() {
+        world = EngineFakes.create(FakeWorld.class);
+        scanner = new SpawnColumnScanner(world);
+    }
+
+    @Test
+    public void testFindsTheNearestOpenBlock() {
+        assertEquals(1, scanner.findOpenOffset(0, 3, 0));
+        assertEquals(5, scanner.findOpenOffset(0, -5, 0));
+        assertEquals(SpawnColumnScanner.NOT_FOUND, scanner.findOpenOffset(0, -100, 0));
+    }
+
+    @Test
+    public void testUnloadedColumnsAreNotFoundYet() {
+        world.setLoadedBelowX(10);
+
+        assertEquals(SpawnColumnScanner.NOT_LOADED, scanner.findOpenOffset(10, 3, 0));
+        assertEquals(1, scanner.findOpenOffset(9, 3, 0));
+    }
+
+    @Test
+    public void testOnlyFullyScannedColumnsAreRecorded() {
+        world.setLoadedBelowX(10);
+        SpawnArea area = new SpawnArea(0, 0, 0, 20, 0);
+        int loaded = area.pickColumn(0, 0);
+        // (15 / 20)^2 of the way out, straight along x
+        int unloaded = area.pickColumn(0.5625, 0);
+        int blocked = area.pickColumn(0.01, 0.5);
+        assertEquals(15, area.getX(unloaded));
+
+        SpawnBatch batch = new SpawnBatch();
+        SpawnerComponent spawnerComp = new SpawnerComponent();
+        batch.add(EntityRef.NULL, spawnerComp, area, loaded, true).set(area.getX(loaded), 3, area.getZ(loaded));
+        batch.add(EntityRef.NULL, spawnerComp, area, unloaded, true).set(area.getX(unloaded), 3, area.getZ(unloaded));
+        batch.add(EntityRef.NULL, spawnerComp, area, blocked, true).set(area.getX(blocked), -100, area.getZ(blocked));
+        scanner.resolveAll(batch);
+
+        assertTrue(batch.isResolved(0));
+        assertEquals(4, area.getOpenY(loaded));
+        // Its chunk may load later, so it is scanned again next time
+        assertFalse(batch.isResolved(1));
+        assertEquals(SpawnArea.UNKNOWN, area.getOpenY(unloaded));
+        assertFalse(batch.isResolved(2));
+        assertEquals(SpawnArea.BLOCKED, area.getOpenY(blocked));
+    }
+}
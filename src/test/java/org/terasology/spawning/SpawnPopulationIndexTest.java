@@ -0,0 +1,74 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.spawning;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class SpawnPopulationIndexTest {
+
+    private static final long SPAWNER = 10;
+    private static final long OTHER_SPAWNER = 20;
+
+    private SpawnPopulationIndex population;
+
+    @BeforeEach
+    public void setup() {
+        population = new SpawnPopulationIndex();
+    }
+
+    @Test
+    public void testCountsPerSpawner() {
+        population.put(1, SPAWNER);
+        population.put(2, SPAWNER);
+        population.put(3, OTHER_SPAWNER);
+
+        assertEquals(2, population.count(SPAWNER));
+        assertEquals(1, population.count(OTHER_SPAWNER));
+        assertEquals(3, population.total());
+    }
+
+    @Test
+    public void testPuttingTwiceCountsOnce() {
+        population.put(1, SPAWNER);
+        population.put(1, SPAWNER);
+
+        assertEquals(1, population.count(SPAWNER));
+        assertEquals(1, population.total());
+    }
+
+    @Test
+    public void testMovingToAnotherSpawner() {
+        population.put(1, SPAWNER);
+        population.put(1, OTHER_SPAWNER);
+
+        assertEquals(0, population.count(SPAWNER));
+        assertEquals(1, population.count(OTHER_SPAWNER));
+        assertEquals(1, population.total());
+    }
+
+    @Test
+    public void testSpawnablesWithoutParentAreNotCounted() {
+        population.put(1, SpawnPopulationIndex.NO_PARENT);
+        assertEquals(0, population.total());
+
+        population.put(2, SPAWNER);
+        population.put(2, SpawnPopulationIndex.NO_PARENT);
+        assertEquals(0, population.count(SPAWNER));
+        assertEquals(0, population.total());
+    }
+
+    @Test
+    public void testRemoving() {
+        population.put(1, SPAWNER);
+        population.put(2, SPAWNER);
+        population.remove(1);
+        population.remove(1);
+        population.remove(99);
+
+        assertEquals(1, population.count(SPAWNER));
+        assertEquals(1, population.total());
+    }
+}
@@ -0,0 +1,313 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.spawning;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.joml.Vector3f;
+import org.terasology.engine.logic.characters.CharacterMovementComponent;
+import org.terasology.engine.logic.location.LocationComponent;
+import org.terasology.engine.logic.players.PlayerCharacterComponent;
+import org.terasology.spawning.EngineFakes.FakeEntity;
+import org.terasology.spawning.EngineFakes.FakeEntityManager;
+import org.terasology.spawning.EngineFakes.FakePrefabManager;
+import org.terasology.spawning.EngineFakes.FakeTime;
+import org.terasology.spawning.EngineFakes.FakeWorld;
+import org.terasology.spawning.ai.HierarchicalAIComponent;
+import org.terasology.spawning.ai.HierarchicalAISystem;
+import org.terasology.spawning.ai.SimpleAIComponent;
+import org.terasology.spawning.ai.SimpleAISystem;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Runs Spawners and both AI systems together outside the engine, frame by frame on a flat world, for capacity
+ * planning: a grid of Spawners with a player in the middle, half of them spawning hierarchical AIs and half simple
+ * ones. Spawned entities go through the systems' lifecycle handlers like in the engine, so caps and AI updates behave
+ * as in a game. Nothing moves or despawns by itself, Spawnables can be given a lifetime to keep the population
+ * turning over.
+ */
+public class SpawnSimulation {
+
+    public static final long FRAME_MS = 16;
+
+    /** Game time in ms between population samples */
+    private static final long SAMPLE_INTERVAL_MS = 1000;
+
+    private final FakeTime time;
+    private final FakeEntityManager entityManager;
+    private final SpawningMetrics metrics;
+    private final ProximityIndex proximityIndex;
+    private final SpawnerSystem spawnerSystem;
+    private final SimpleAISystem simpleAISystem;
+    private final HierarchicalAISystem hierarchicalAISystem;
+
+    /** Spawnables in the order they were spawned, with when, while they have a lifetime */
+    private final Deque<FakeEntity> aging = new ArrayDeque<>();
+    private final Deque<Long> spawnedAt = new ArrayDeque<>();
+    private long lifetimeMs;
+    private int spawnables;
+
+    /**
+     * @param spawners how many Spawners to place
+     * @param spacing blocks between neighbouring Spawners
+     */
+    public SpawnSimulation(int spawners, int spacing) {
+        time = EngineFakes.create(FakeTime.class);
+        FakeWorld world = EngineFakes.create(FakeWorld.class);
+        entityManager = EngineFakes.create(FakeEntityManager.class);
+        FakePrefabManager prefabManager = EngineFakes.create(FakePrefabManager.class);
+        prefabManager.getPrefabs().add(EngineFakes.prefab("simulation:deer", spawnable("deer"),
+                new HierarchicalAIComponent(), new CharacterMovementComponent(), new LocationComponent()));
+        // Spawners give Spawnables without an AI a simple one
+        prefabManager.getPrefabs().add(EngineFakes.prefab("simulation:slime", spawnable("slime"),
+                new CharacterMovementComponent(), new LocationComponent()));
+
+        metrics = new SpawningMetrics();
+        EngineFakes.inject(metrics, time);
+        proximityIndex = new ProximityIndex();
+        SpawnablePrefabCache prefabCache = new SpawnablePrefabCache();
+        EngineFakes.inject(prefabCache, prefabManager);
+        SpawnablePool pool = new SpawnablePool();
+        EngineFakes.inject(pool, entityManager, metrics);
+        SpawnRecorder recorder = new SpawnRecorder();
+        EngineFakes.inject(recorder, entityManager, prefabManager, time);
+        spawnerSystem = new SpawnerSystem();
+        EngineFakes.inject(spawnerSystem, entityManager, prefabCache, world, time, metrics, new SpawnDiagnostics(),
+                pool, proximityIndex, recorder);
+        simpleAISystem = new SimpleAISystem();
+        EngineFakes.inject(simpleAISystem, world, time, proximityIndex, metrics);
+        hierarchicalAISystem = new HierarchicalAISystem();
+        EngineFakes.inject(hierarchicalAISystem, world, time, proximityIndex, metrics);
+        spawnerSystem.initialise();
+        simpleAISystem.initialise();
+        hierarchicalAISystem.initialise();
+        spawnerSystem.cacheTypes();
+
+        entityManager.setOnCreated(this::activate);
+        entityManager.setOnDestroyed(this::deactivate);
+
+        entityManager.create(List.of(new PlayerCharacterComponent(), new LocationComponent(new Vector3f())));
+        int side = (int) Math.ceil(Math.sqrt(spawners));
+        for (int i = 0; i < spawners; i++) {
+            SpawnerComponent spawner = new SpawnerComponent();
+            spawner.types = Lists.newArrayList(i % 2 == 0 ? "deer" : "slime");
+            spawner.rangedSpawning = true;
+            Vector3f position = new Vector3f((i % side - side / 2f) * spacing, 0, (i / side - side / 2f) * spacing);
+            entityManager.create(List.of(spawner, new LocationComponent(position)));
+        }
+    }
+
+    public SpawnerSystem getSpawnerSystem() {
+        return spawnerSystem;
+    }
+
+    public SimpleAISystem getSimpleAISystem() {
+        return simpleAISystem;
+    }
+
+    public HierarchicalAISystem getHierarchicalAISystem() {
+        return hierarchicalAISystem;
+    }
+
+    /**
+     * @param ms how long Spawnables spawned from now on live, 0 to keep them forever
+     */
+    public void setLifetime(long ms) {
+        this.lifetimeMs = ms;
+    }
+
+    /**
+     * @return how many Spawnables are alive
+     */
+    public int getPopulation() {
+        return spawnables;
+    }
+
+    /**
+     * @return how many AIs are alive
+     */
+    public int getAICount() {
+        return proximityIndex.getAICount();
+    }
+
+    /**
+     * Runs the given amount of game time, one frame at a time, with fresh metrics.
+     */
+    public Report run(long simulatedMs) {
+        metrics.reset();
+        List<Integer> populationCurve = new ArrayList<>();
+        long frames = simulatedMs / FRAME_MS;
+        long nextSampleAt = time.getGameTimeInMs();
+
+        long allocatedBefore = allocatedBytes();
+        long startNanos = System.nanoTime();
+        for (long frame = 0; frame < frames; frame++) {
+            time.advance(FRAME_MS);
+            long now = time.getGameTimeInMs();
+            while (!aging.isEmpty() && spawnedAt.peekFirst() + lifetimeMs <= now) {
+                spawnedAt.pollFirst();
+                aging.pollFirst().destroy();
+            }
+            spawnerSystem.update(FRAME_MS / 1000f);
+            simpleAISystem.update(FRAME_MS / 1000f);
+            hierarchicalAISystem.update(FRAME_MS / 1000f);
+            if (now >= nextSampleAt) {
+                nextSampleAt = now + SAMPLE_INTERVAL_MS;
+                populationCurve.add(spawnables);
+            }
+        }
+        return new Report(frames, System.nanoTime() - startNanos, allocatedBytes() - allocatedBefore,
+                populationCurve, metrics.snapshot());
+    }
+
+    private void activate(FakeEntity entity) {
+        LocationComponent location = entity.getComponent(LocationComponent.class);
+        SpawnableComponent spawnable = entity.getComponent(SpawnableComponent.class);
+        if (spawnable != null) {
+            spawnables++;
+            spawnerSystem.onSpawnableActivated(null, entity, spawnable);
+            if (lifetimeMs > 0) {
+                aging.addLast(entity);
+                spawnedAt.addLast(time.getGameTimeInMs());
+            }
+        }
+        SpawnerComponent spawner = entity.getComponent(SpawnerComponent.class);
+        if (spawner != null && location != null) {
+            spawnerSystem.onNewSpawner(null, entity, spawner, location);
+        }
+        if (entity.hasComponent(PlayerCharacterComponent.class) && location != null) {
+            proximityIndex.onPlayerActivated(null, entity, location);
+        }
+        if (!entity.hasComponent(CharacterMovementComponent.class) || location == null) {
+            return;
+        }
+        if (entity.hasComponent(SimpleAIComponent.class)) {
+            simpleAISystem.onAIActivated(null, entity);
+            proximityIndex.onSimpleAIActivated(null, entity, location);
+        }
+        HierarchicalAIComponent ai = entity.getComponent(HierarchicalAIComponent.class);
+        if (ai != null) {
+            hierarchicalAISystem.onAIActivated(null, entity, ai, location);
+            proximityIndex.onHierarchicalAIActivated(null, entity, location);
+        }
+    }
+
+    private void deactivate(FakeEntity entity) {
+        if (entity.hasComponent(SpawnableComponent.class)) {
+            spawnables--;
+            spawnerSystem.onSpawnableDeactivated(null, entity);
+        }
+        if (entity.hasComponent(SpawnerComponent.class)) {
+            spawnerSystem.onRemovedSpawner(null, entity);
+        }
+        if (entity.hasComponent(SimpleAIComponent.class)) {
+            simpleAISystem.onAIDeactivated(null, entity);
+            proximityIndex.onSimpleAIDeactivated(null, entity);
+        }
+        if (entity.hasComponent(HierarchicalAIComponent.class)) {
+            hierarchicalAISystem.onAIDeactivated(null, entity);
+            proximityIndex.onHierarchicalAIDeactivated(null, entity);
+        }
+    }
+
+    private static SpawnableComponent spawnable(String tag) {
+        SpawnableComponent spawnable = new SpawnableComponent();
+        spawnable.tags = Sets.newHashSet(tag);
+        return spawnable;
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * What happened during a run.
+     */
+    public static final class Report {
+
+        private final long frames;
+        private final long realNanos;
+        private final long allocatedBytes;
+        private final List<Integer> populationCurve;
+        private final Map<String, Number> metrics;
+
+        private Report(long frames, long realNanos, long allocatedBytes, List<Integer> populationCurve,
+                       Map<String, Number> metrics) {
+            this.frames = frames;
+            this.realNanos = realNanos;
+            this.allocatedBytes = allocatedBytes;
+            this.populationCurve = populationCurve;
+            this.metrics = metrics;
+        }
+
+        public long getFrames() {
+            return frames;
+        }
+
+        /**
+         * @return bytes allocated by the thread running the simulation, over the whole run
+         */
+        public long getAllocatedBytes() {
+            return allocatedBytes;
+        }
+
+        /**
+         * @return how many updates simple and hierarchical AIs got over the run
+         */
+        public long getAIUpdates() {
+            return Math.round(processed(SpawningMetrics.Histogram.SIMPLE_AI_PROCESSED)
+                    + processed(SpawningMetrics.Histogram.HIERARCHICAL_AI_PROCESSED));
+        }
+
+        /**
+         * @return the number of Spawnables alive at each second of the run
+         */
+        public List<Integer> getPopulationCurve() {
+            return populationCurve;
+        }
+
+        public long get(SpawningMetrics.Counter counter) {
+            return metrics.get(counter.name()).longValue();
+        }
+
+        /**
+         * @param statistic one of count, mean, p50, p99 and max
+         */
+        public Number get(SpawningMetrics.Histogram histogram, String statistic) {
+            return metrics.get(histogram.name() + "." + statistic);
+        }
+
+        private double processed(SpawningMetrics.Histogram perFrame) {
+            return get(perFrame, "mean").doubleValue() * get(perFrame, "count").longValue();
+        }
+
+        @Override
+        public String toString() {
+            double minutes = frames * FRAME_MS / 60_000.0;
+            StringBuilder report = new StringBuilder();
+            report.append(String.format(Locale.ROOT, "%d frames, %.1f simulated minutes in %d ms, %d KB allocated%n",
+                    frames, minutes, realNanos / 1_000_000, allocatedBytes / 1024));
+            report.append(String.format(Locale.ROOT, "Spawned %d (%.1f per simulated minute) in %d attempts, %d AI "
+                            + "updates%n", get(SpawningMetrics.Counter.SPAWN_SUCCESSES),
+                    get(SpawningMetrics.Counter.SPAWN_SUCCESSES) / minutes,
+                    get(SpawningMetrics.Counter.SPAWN_ATTEMPTS), getAIUpdates()));
+            report.append("Spawnables per second: ").append(populationCurve).append('\n');
+            for (SpawningMetrics.Histogram histogram : new SpawningMetrics.Histogram[]{
+                    SpawningMetrics.Histogram.SPAWN_PASS_MICROS,
+                    SpawningMetrics.Histogram.SIMPLE_AI_UPDATE_MICROS,
+                    SpawningMetrics.Histogram.HIERARCHICAL_AI_UPDATE_MICROS}) {
+                report.append(String.format(Locale.ROOT, "%s: p50 %s, p99 %s, max %s%n", histogram.name(),
+                        get(histogram, "p50"), get(histogram, "p99"), get(histogram, "max")));
+            }
+            return report.toString();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.spawning;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SpawnSimulationTest {
+
+    private static final long MINUTE_MS = 60_000;
+
+    /**
+     * Nearly all of it is the move events AIs send, about 80 bytes per update. One more small object per hierarchical
+     * AI update already adds about 12 bytes.
+     */
+    private static final long MAX_BYTES_PER_AI_UPDATE = 84;
+
+    @Test
+    public void testSpawnersFillUpToTheirCap() {
+        SpawnSimulation simulation = new SpawnSimulation(16, 32);
+
+        SpawnSimulation.Report report = simulation.run(2 * MINUTE_MS);
+
+        int expected = 16 * new SpawnerComponent().maxMobsPerSpawner;
+        assertEquals(expected, report.get(SpawningMetrics.Counter.SPAWN_SUCCESSES), report.toString());
+        assertEquals(expected, simulation.getPopulation());
+        assertEquals(expected, simulation.getAICount());
+        assertTrue(report.get(SpawningMetrics.Counter.SPAWN_FAILED_SPAWNER_CAP) > 0, report.toString());
+    }
+
+    @Test
+    public void testGlobalCapHoldsWithManySpawners() {
+        SpawnSimulation simulation = new SpawnSimulation(100, 16);
+
+        SpawnSimulation.Report report = simulation.run(MINUTE_MS);
+
+        int cap = simulation.getSpawnerSystem().getGlobalMobCap();
+        assertEquals(cap, simulation.getPopulation(), report.toString());
+        assertEquals(cap, simulation.getAICount());
+        assertTrue(report.get(SpawningMetrics.Counter.SPAWN_FAILED_GLOBAL_CAP) > 0, report.toString());
+        for (int population : report.getPopulationCurve()) {
+            assertTrue(population <= cap, report.toString());
+        }
+    }
+
+    @Test
+    public void testSpawnersKeepSpawningAsThePopulationTurnsOver() {
+        SpawnSimulation simulation = new SpawnSimulation(16, 32);
+        // Short enough that no Spawner reaches its cap, so every attempt spawns
+        simulation.setLifetime(20_000);
+
+        SpawnSimulation.Report report = simulation.run(2 * MINUTE_MS);
+
+        // Attempts land on the first frame after each period, so the last period's may fall just after the run
+        long attempts = report.get(SpawningMetrics.Counter.SPAWN_ATTEMPTS);
+        assertTrue(attempts >= 16 * (2 * MINUTE_MS / new SpawnerComponent().period - 1), report.toString());
+        assertEquals(attempts, report.get(SpawningMetrics.Counter.SPAWN_SUCCESSES), report.toString());
+        assertEquals(simulation.getPopulation(), simulation.getAICount());
+        assertTrue(simulation.getPopulation() < 16 * new SpawnerComponent().maxMobsPerSpawner, report.toString());
+    }
+
+    @Test
+    public void testFullPopulationAllocatesLittleBesidesMoveEvents() {
+        SpawnSimulation simulation = new SpawnSimulation(16, 32);
+        simulation.run(2 * MINUTE_MS);
+
+        SpawnSimulation.Report report = simulation.run(MINUTE_MS);
+
+        assertEquals(0, report.get(SpawningMetrics.Counter.SPAWN_SUCCESSES));
+        long perUpdate = report.getAllocatedBytes() / report.getAIUpdates();
+        assertTrue(perUpdate <= MAX_BYTES_PER_AI_UPDATE, perUpdate + " bytes per AI update\n" + report);
+    }
+}
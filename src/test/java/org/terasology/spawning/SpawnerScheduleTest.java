@@ -0,0 +1,83 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.spawning;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.terasology.engine.entitySystem.entity.EntityRef;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class SpawnerScheduleTest {
+
+    private SpawnerSchedule schedule;
+    private EntityRef first;
+    private EntityRef second;
+
+    @BeforeEach
+    public void setup() {
+        schedule = new SpawnerSchedule();
+        first = spawner(1);
+        second = spawner(2);
+    }
+
+    @Test
+    public void testDueSpawnersComeOutInOrder() {
+        schedule.schedule(first, 200);
+        schedule.schedule(second, 100);
+
+        assertNull(schedule.pollDue(99));
+        assertSame(second, schedule.pollDue(250));
+        assertSame(first, schedule.pollDue(250));
+        assertNull(schedule.pollDue(250));
+        assertEquals(0, schedule.size());
+    }
+
+    @Test
+    public void testReschedulingReplacesTheOldTime() {
+        schedule.schedule(first, 100);
+        schedule.schedule(first, 300);
+
+        assertNull(schedule.pollDue(200));
+        assertSame(first, schedule.pollDue(300));
+        assertNull(schedule.pollDue(1000));
+    }
+
+    @Test
+    public void testUnscheduledSpawnersAreNotDue() {
+        schedule.schedule(first, 100);
+        schedule.schedule(second, 100);
+        schedule.unschedule(first);
+
+        assertFalse(schedule.isScheduled(first));
+        assertTrue(schedule.isScheduled(second));
+        assertSame(second, schedule.pollDue(100));
+        assertNull(schedule.pollDue(100));
+    }
+
+    @Test
+    public void testScheduledSpawnersCanBeRescheduledWhileListed() {
+        schedule.schedule(first, 100);
+        schedule.schedule(second, 200);
+
+        for (EntityRef spawner : schedule.getScheduled()) {
+            schedule.schedule(spawner, 500);
+        }
+        assertEquals(Set.of(first, second), Set.copyOf(schedule.getScheduled()));
+        assertNull(schedule.pollDue(499));
+    }
+
+    private static EntityRef spawner(long id) {
+        EntityRef entity = mock(EntityRef.class);
+        when(entity.getId()).thenReturn(id);
+        return entity;
+    }
+}
@@ -0,0 +1,214 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.spawning.ai;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.terasology.engine.entitySystem.entity.EntityRef;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class AIRosterTest {
+
+    private static final long BUDGET_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private AIRoster roster;
+    private List<EntityRef> visited;
+
+    @BeforeEach
+    public void setup() {
+        roster = new AIRoster();
+        visited = new ArrayList<>();
+    }
+
+    @Test
+    public void testAddedAIsAreProcessedOnceInOrder() {
+        EntityRef first = entity(1);
+        EntityRef second = entity(2);
+        roster.add(first, 0);
+        roster.add(second, 0);
+        roster.add(first, 0);
+
+        assertEquals(2, roster.size());
+        assertEquals(2, roster.process(10, 100, BUDGET_NANOS, sleepUntil(1000)));
+        assertEquals(List.of(first, second), visited);
+    }
+
+    @Test
+    public void testSleepingAIsWaitUntilDue() {
+        EntityRef ai = entity(1);
+        roster.add(ai, 0);
+        roster.process(0, 100, BUDGET_NANOS, sleepUntil(500));
+        assertFalse(roster.isAwake(roster.slotOf(ai)));
+
+        assertEquals(0, roster.process(499, 100, BUDGET_NANOS, sleepUntil(1000)));
+        assertEquals(1, roster.process(500, 100, BUDGET_NANOS, sleepUntil(1000)));
+    }
+
+    @Test
+    public void testAIsStayingAwakeTakeTheirTurnNextFrame() {
+        for (int i = 1; i <= 5; i++) {
+            roster.add(entity(i), 0);
+        }
+
+        assertEquals(2, roster.process(10, 2, BUDGET_NANOS, stayAwake()));
+        assertEquals(2, roster.process(20, 2, BUDGET_NANOS, stayAwake()));
+        assertEquals(2, roster.process(30, 2, BUDGET_NANOS, stayAwake()));
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L, 1L), ids(visited));
+    }
+
+    @Test
+    public void testEachAIIsProcessedAtMostOncePerFrame() {
+        EntityRef ai = entity(1);
+        roster.add(ai, 0);
+        // Stays awake, so it is queued again for the next frame
+        roster.process(0, 100, BUDGET_NANOS, stayAwake());
+
+        for (long now = 10; now < 1000; now += 10) {
+            // Put to sleep after its turn and woken again, e.g. by a player coming near
+            roster.setNextDueAt(ai, now + 5000);
+            roster.wake(ai);
+            visited.clear();
+            roster.process(now, 100, BUDGET_NANOS, stayAwake());
+            assertEquals(1, visited.size(), "processed more than once at " + now);
+        }
+    }
+
+    @Test
+    public void testWakingAQueuedAIKeepsItsPlace() {
+        EntityRef first = entity(1);
+        EntityRef second = entity(2);
+        roster.add(first, 0);
+        roster.add(second, 0);
+        roster.setNextDueAt(first, 1000);
+        roster.wake(first);
+
+        roster.process(10, 100, BUDGET_NANOS, sleepUntil(1000));
+        assertEquals(List.of(first, second), visited);
+    }
+
+    @Test
+    public void testWakeProcessesASleepingAIEarly() {
+        EntityRef ai = entity(1);
+        roster.add(ai, 0);
+        roster.process(0, 100, BUDGET_NANOS, sleepUntil(5000));
+
+        roster.wake(ai);
+        assertTrue(roster.isAwake(roster.slotOf(ai)));
+        assertEquals(1, roster.process(10, 100, BUDGET_NANOS, sleepUntil(6000)));
+        // The old wheel entry doesn't wake it a second time
+        assertEquals(0, roster.process(5000, 100, BUDGET_NANOS, sleepUntil(10000)));
+        assertEquals(1, roster.process(6000, 100, BUDGET_NANOS, sleepUntil(10000)));
+    }
+
+    @Test
+    public void testElapsedTimeCoversSkippedFrames() {
+        roster.add(entity(1), 100);
+        List<Long> elapsed = new ArrayList<>();
+        AIRoster.Visitor visitor = (entity, slot, elapsedMs) -> {
+            elapsed.add(elapsedMs);
+            return 0;
+        };
+
+        roster.process(150, 100, BUDGET_NANOS, visitor);
+        roster.process(400, 100, BUDGET_NANOS, visitor);
+        assertEquals(List.of(50L, 250L), elapsed);
+    }
+
+    @Test
+    public void testRemovedAIsAreSkippedAndSlotsStayDense() {
+        EntityRef first = entity(1);
+        EntityRef second = entity(2);
+        EntityRef third = entity(3);
+        roster.add(first, 0);
+        roster.add(second, 0);
+        roster.add(third, 0);
+        Map<Integer, Integer> moves = new HashMap<>();
+        List<Integer> cleared = new ArrayList<>();
+        roster.setSlotListener(new AIRoster.SlotListener() {
+            @Override
+            public void onMoved(int from, int to) {
+                moves.put(from, to);
+            }
+
+            @Override
+            public void onCleared(int slot) {
+                cleared.add(slot);
+            }
+        });
+
+        roster.remove(first);
+        assertEquals(2, roster.size());
+        assertEquals(Map.of(2, 0), moves);
+        assertEquals(List.of(2), cleared);
+        assertEquals(0, roster.slotOf(third));
+        assertEquals(-1, roster.slotOf(first));
+
+        roster.process(10, 100, BUDGET_NANOS, sleepUntil(1000));
+        assertEquals(List.of(second, third), visited);
+    }
+
+    @Test
+    public void testAIsRemovedDuringProcessingAreSkipped() {
+        EntityRef first = entity(1);
+        EntityRef second = entity(2);
+        roster.add(first, 0);
+        roster.add(second, 0);
+
+        roster.process(10, 100, BUDGET_NANOS, (entity, slot, elapsedMs) -> {
+            visited.add(entity);
+            roster.remove(second);
+            return 1000;
+        });
+        assertEquals(List.of(first), visited);
+        assertEquals(1, roster.size());
+    }
+
+    @Test
+    public void testReAddedAIIsProcessedOnce() {
+        EntityRef ai = entity(1);
+        roster.add(ai, 0);
+        roster.remove(ai);
+        roster.add(ai, 0);
+
+        assertEquals(1, roster.process(10, 100, BUDGET_NANOS, sleepUntil(1000)));
+    }
+
+    private AIRoster.Visitor sleepUntil(long dueAt) {
+        return (entity, slot, elapsedMs) -> {
+            visited.add(entity);
+            return dueAt;
+        };
+    }
+
+    private AIRoster.Visitor stayAwake() {
+        return (entity, slot, elapsedMs) -> {
+            visited.add(entity);
+            return 0;
+        };
+    }
+
+    private static List<Long> ids(List<EntityRef> entities) {
+        List<Long> ids = new ArrayList<>();
+        for (EntityRef entity : entities) {
+            ids.add(entity.getId());
+        }
+        return ids;
+    }
+
+    private static EntityRef entity(long id) {
+        EntityRef entity = mock(EntityRef.class);
+        when(entity.getId()).thenReturn(id);
+        return entity;
+    }
+}
@@ -0,0 +1,85 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.spawning.ai;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class AITimerWheelTest {
+
+    private AITimerWheel wheel;
+    private List<Long> expired;
+
+    @BeforeEach
+    public void setup() {
+        wheel = new AITimerWheel();
+        expired = new ArrayList<>();
+    }
+
+    @Test
+    public void testEntriesExpireOnceDue() {
+        wheel.schedule(1, 100);
+        wheel.schedule(2, 200);
+
+        wheel.advance(99, this::expired);
+        assertEquals(List.of(), expired);
+        wheel.advance(150, this::expired);
+        assertEquals(List.of(1L), expired);
+        wheel.advance(1000, this::expired);
+        assertEquals(List.of(1L, 2L), expired);
+        wheel.advance(2000, this::expired);
+        assertEquals(2, expired.size());
+    }
+
+    @Test
+    public void testEntriesInTheSameTickExpireByTheirOwnTime() {
+        wheel.schedule(1, 10);
+        wheel.schedule(2, 20);
+
+        wheel.advance(15, this::expired);
+        assertEquals(List.of(1L), expired);
+        wheel.advance(20, this::expired);
+        assertEquals(List.of(1L, 2L), expired);
+    }
+
+    @Test
+    public void testEntriesMoreThanATurnAheadWaitForTheirTime() {
+        long turn = 256L * AITimerWheel.TICK_MS;
+        wheel.schedule(1, turn + 50);
+
+        for (long now = 0; now < turn + 50; now += AITimerWheel.TICK_MS) {
+            wheel.advance(now, this::expired);
+        }
+        assertEquals(List.of(), expired);
+        wheel.advance(turn + 50, this::expired);
+        assertEquals(List.of(1L), expired);
+    }
+
+    @Test
+    public void testEntriesAlreadyDueExpireOnTheNextAdvance() {
+        wheel.advance(1000, this::expired);
+        wheel.schedule(1, 500);
+
+        wheel.advance(1000, this::expired);
+        assertEquals(List.of(1L), expired);
+    }
+
+    @Test
+    public void testLongGapsExpireEverything() {
+        for (int i = 0; i < 1000; i++) {
+            wheel.schedule(i, i * 37L);
+        }
+
+        wheel.advance(1_000_000, this::expired);
+        assertEquals(1000, expired.size());
+    }
+
+    private void expired(long id, long dueAt) {
+        expired.add(id);
+    }
+}
@@ -0,0 +1,77 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.spawning.ai;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class LongIntMapTest {
+
+    @Test
+    public void testPutGetAndRemove() {
+        LongIntMap map = new LongIntMap();
+        map.put(5, 0);
+        map.put(-7, 3);
+        map.put(5, 1);
+
+        assertEquals(2, map.size());
+        assertEquals(1, map.get(5));
+        assertEquals(3, map.get(-7));
+        assertEquals(LongIntMap.MISSING, map.get(6));
+
+        assertEquals(1, map.remove(5));
+        assertEquals(LongIntMap.MISSING, map.remove(5));
+        assertEquals(LongIntMap.MISSING, map.get(5));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    public void testGrowsPastItsCapacity() {
+        LongIntMap map = new LongIntMap(4);
+        for (int i = 0; i < 1000; i++) {
+            map.put(i * 31L, i);
+        }
+
+        assertEquals(1000, map.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, map.get(i * 31L));
+        }
+    }
+
+    @Test
+    public void testRemovalKeepsCollidingKeysReachable() {
+        // A small table and many keys make long probe runs, removals from their middle must not cut them off
+        LongIntMap map = new LongIntMap(256);
+        Map<Long, Integer> expected = new HashMap<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 100_000; i++) {
+            long key = random.nextInt(300);
+            if (random.nextBoolean()) {
+                map.put(key, i);
+                expected.put(key, i);
+            } else {
+                assertEquals(expected.containsKey(key) ? (int) expected.remove(key) : LongIntMap.MISSING, map.remove(key));
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        for (long key = 0; key < 300; key++) {
+            assertEquals((int) expected.getOrDefault(key, LongIntMap.MISSING), map.get(key));
+        }
+    }
+
+    @Test
+    public void testClear() {
+        LongIntMap map = new LongIntMap();
+        map.put(1, 1);
+        map.clear();
+
+        assertEquals(0, map.size());
+        assertEquals(LongIntMap.MISSING, map.get(1));
+    }
+}
@@ -0,0 +1,130 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.spawning.ai;
+
+import org.joml.Vector3f;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.terasology.engine.logic.characters.CharacterMoveInputEvent;
+import org.terasology.engine.logic.characters.CharacterMovementComponent;
+import org.terasology.engine.logic.location.LocationComponent;
+import org.terasology.spawning.EngineFakes;
+import org.terasology.spawning.EngineFakes.FakeEntity;
+import org.terasology.spawning.EngineFakes.FakeTime;
+import org.terasology.spawning.EngineFakes.FakeWorld;
+import org.terasology.spawning.ProximityIndex;
+import org.terasology.spawning.SpawningMetrics;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that updating simple AIs allocates nothing besides the move event each AI sends, which the engine needs a new
+ * instance of every time.
+ */
+public class SimpleAISystemAllocationTest {
+
+    private static final int AIS = 100;
+    private static final int WARMUP_FRAMES = 5000;
+    private static final int FRAMES = 2000;
+    private static final long FRAME_MS = 16;
+
+    private final Vector3f drive = new Vector3f(0, 0, 1);
+
+    private FakeTime time;
+    private SimpleAISystem system;
+    private FakeEntity[] ais;
+
+    /** Keeps the calibration's events from being optimised away */
+    private CharacterMoveInputEvent lastEvent;
+
+    @BeforeEach
+    public void setup() {
+        time = EngineFakes.create(FakeTime.class);
+        FakeWorld world = EngineFakes.create(FakeWorld.class);
+        ProximityIndex proximityIndex = new ProximityIndex();
+        SpawningMetrics metrics = new SpawningMetrics();
+        EngineFakes.inject(metrics, time);
+        system = new SimpleAISystem();
+        EngineFakes.inject(system, world, time, proximityIndex, metrics);
+        system.initialise();
+        system.setUpdateBudget(AIS, 1_000_000);
+
+        FakeEntity player = EngineFakes.create(FakeEntity.class, 1L);
+        LocationComponent playerLocation = player.addComponent(new LocationComponent(new Vector3f()));
+        proximityIndex.onPlayerActivated(null, player, playerLocation);
+
+        // Close enough to follow the player, so once turned towards it nothing about them changes
+        ais = new FakeEntity[AIS];
+        for (int i = 0; i < AIS; i++) {
+            double angle = 2 * Math.PI * i / AIS;
+            ais[i] = EngineFakes.create(FakeEntity.class, 1000L + i);
+            LocationComponent location = ais[i].addComponent(new LocationComponent(
+                    new Vector3f(3 * (float) Math.cos(angle), 0, 3 * (float) Math.sin(angle))));
+            ais[i].addComponent(new SimpleAIComponent());
+            ais[i].addComponent(new CharacterMovementComponent());
+            system.onAIActivated(null, ais[i]);
+            proximityIndex.onSimpleAIActivated(null, ais[i], location);
+        }
+    }
+
+    @Test
+    public void testEveryAIMovesEveryFrame() {
+        runFrames(10);
+
+        for (FakeEntity ai : ais) {
+            assertEquals(10, ai.getSentEvents());
+        }
+    }
+
+    @Test
+    public void testAIsUpdatedLessOftenMoveForTheWholeTime() {
+        // Half the AIs per frame, so each takes a turn every other frame
+        system.setUpdateBudget(AIS / 2, 1_000_000);
+        runFrames(10);
+
+        for (FakeEntity ai : ais) {
+            assertEquals(5, ai.getSentEvents());
+            assertEquals(2 * FRAME_MS, ((CharacterMoveInputEvent) ai.getLastEvent()).getDeltaMs());
+        }
+    }
+
+    @Test
+    public void testSteadyUpdatesOnlyAllocateTheMoveEvent() {
+        runFrames(WARMUP_FRAMES);
+        long eventBytes = bytesPerMoveEvent();
+
+        long before = allocatedBytes();
+        runFrames(FRAMES);
+        long perUpdate = (allocatedBytes() - before) / ((long) FRAMES * AIS);
+
+        assertTrue(perUpdate <= eventBytes,
+                "Allocated " + perUpdate + " bytes per AI update, a move event takes " + eventBytes);
+    }
+
+    private void runFrames(int frames) {
+        for (int i = 0; i < frames; i++) {
+            time.advance(FRAME_MS);
+            system.update(FRAME_MS / 1000f);
+        }
+    }
+
+    private long bytesPerMoveEvent() {
+        int count = 100_000;
+        for (int i = 0; i < count; i++) {
+            lastEvent = new CharacterMoveInputEvent(0, 0, 0, drive, false, false, false, FRAME_MS);
+        }
+        long before = allocatedBytes();
+        for (int i = 0; i < count; i++) {
+            lastEvent = new CharacterMoveInputEvent(0, 0, 0, drive, false, false, false, FRAME_MS);
+        }
+        return (allocatedBytes() - before) / count;
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}